@@ -0,0 +1,160 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import cellularautomaton.Alphabet;
+import cellularautomaton.Cell;
+import cellularautomaton.Dictionary;
+import cellularautomaton.Row;
+
+/**
+ * class BenchmarkRules to build the Alphabets, rules, and starting Rows the benchmarks generate
+ * with. Everything random is drawn from a Random with a fixed seed, so every run of a benchmark
+ * generates the same CellularAutomata and runs can be compared with each other.
+ */
+public class BenchmarkRules
+{
+	/**
+	 * the seed of every Random used to build rules and Rows
+	 */
+	public static final long seed = 2021;
+	
+	/**
+	 * Creates an Alphabet of the specified number of Cells, "C0", "C1", ..., each a different
+	 * shade of grey, with NULL set to "C0"
+	 * 
+	 * @param radix the number of Cells in the Alphabet, at most 256
+	 * @return a new Alphabet
+	 * @throws Exception if the Alphabet could not be created
+	 */
+	public static Alphabet newAlphabet(int radix) throws Exception
+	{
+		Alphabet alphabet = new Alphabet();
+		
+		for(int i = 0; i < radix; i++)
+			alphabet.add(new Cell(getId(i), getRGB(i)));
+		
+		alphabet.setNULL(getRGB(0));
+		
+		return alphabet;
+	}
+	
+	private static String getId(int ordinal)
+	{
+		return "C" + ordinal;
+	}
+	
+	private static int getRGB(int ordinal)
+	{
+		return ordinal * 0x010101;
+	}
+	
+	/**
+	 * Creates a Dictionary that maps every pattern to a random Cell
+	 * 
+	 * @param alphabet the Alphabet of the rules
+	 * @param ruleSize the number of Cells in each pattern
+	 * @return a new Dictionary with a random rule
+	 * @throws Exception if there are too many patterns
+	 */
+	public static Dictionary newDictionary(Alphabet alphabet, int ruleSize) throws Exception
+	{
+		Dictionary dictionary = new Dictionary(alphabet, ruleSize);
+		dictionary.setOutputMap(alphabet.get("NULL"));
+		
+		Random random = new Random(seed);
+		
+		int[] ruleNumber = new int[dictionary.getNumPatterns()];
+		for(int i = 0; i < ruleNumber.length; i++)
+			ruleNumber[i] = random.nextInt(alphabet.numCells());
+		
+		dictionary.remap(ruleNumber);
+		
+		return dictionary;
+	}
+	
+	/**
+	 * Creates a Row of random Cells
+	 * 
+	 * @param alphabet the Alphabet of the Cells
+	 * @param numColumns the number of Cells in the Row
+	 * @param ruleSize the number of Cells in each pattern
+	 * @return a new Row of random Cells
+	 */
+	public static Row newRow(Alphabet alphabet, int numColumns, int ruleSize)
+	{
+		Random random = new Random(seed);
+		
+		Cell[] cells = new Cell[numColumns];
+		for(int col = 0; col < numColumns; col++)
+			cells[col] = alphabet.get(random.nextInt(alphabet.numCells()));
+		
+		return new Row(cells, ruleSize);
+	}
+	
+	/**
+	 * Creates a temporary root directory holding the "settings.txt", "alphabet.txt", and "row.txt"
+	 * files the drivers read, for an Alphabet of radix Cells and a random starting Row
+	 * 
+	 * @param radix the number of Cells in the Alphabet
+	 * @param ruleSize the number of Cells in each pattern
+	 * @param numColumns the number of Cells in the starting Row
+	 * @param numRows the number of Rows of each image
+	 * @param numThreads the number of threads generating images
+	 * @param options lines of optional settings to add to "settings.txt", such as "sweepEnd = 64"
+	 * @return the path of the root directory, ending in a separator the way Settings expects
+	 * @throws IOException if there is a problem writing the files
+	 */
+	public static String newRootDirectory(int radix, int ruleSize, int numColumns, int numRows, int numThreads,
+			String... options) throws IOException
+	{
+		File directory = Files.createTempDirectory("cellularautomaton").toFile();
+		
+		String settings = ""
+				+ "ruleSize   = " + ruleSize + "\r\n"
+				+ "NULLrgbVal = " + Integer.toHexString(getRGB(0)) + "\r\n"
+				+ "numRows    = " + numRows + "\r\n"
+				+ "numThreads = " + numThreads + "\r\n"
+				+ "randomizedRowSize = " + numColumns + "\r\n";
+		
+		for(String option : options)
+			settings += option + "\r\n";
+		
+		StringBuilder alphabet = new StringBuilder();
+		for(int i = 0; i < radix; i++)
+			alphabet.append(getId(i)).append(" = ").append(Integer.toHexString(getRGB(i))).append("\r\n");
+		
+		Random random = new Random(seed);
+		
+		StringBuilder row = new StringBuilder();
+		for(int col = 0; col < numColumns; col++)
+			row.append(getId(random.nextInt(radix))).append(' ');
+		
+		Files.writeString(new File(directory, "settings.txt").toPath(), settings);
+		Files.writeString(new File(directory, "alphabet.txt").toPath(), alphabet);
+		Files.writeString(new File(directory, "row.txt").toPath(), row);
+		
+		return directory.getPath() + File.separator;
+	}
+	
+	/**
+	 * Deletes a root directory made by newRootDirectory and everything in it
+	 * 
+	 * @param rootDirectory the path of the root directory
+	 * @throws IOException if there is a problem listing the files
+	 */
+	public static void delete(String rootDirectory) throws IOException
+	{
+		//in reverse order the files of a directory come before the directory, so they are deleted first
+		try(Stream<Path> paths = Files.walk(new File(rootDirectory).toPath()))
+		{
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+}
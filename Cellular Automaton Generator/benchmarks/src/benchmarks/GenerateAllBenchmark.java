@@ -0,0 +1,114 @@
+package benchmarks;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import drivers.Global;
+import drivers.RuleSweep;
+import drivers.Settings;
+
+/**
+ * class GenerateAllBenchmark to time the whole of GenerateAll: reading the settings, writing and
+ * reading "rules.txt", and sweeping the first numRules rule numbers, generating and saving the
+ * image of each one. A sweep is timed until its last image is saved, and the progress of the
+ * sweep and its images are deleted before the next sweep, so every sweep starts from scratch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerateAllBenchmark
+{
+	@Param({"2", "3"})
+	public int radix;
+	
+	@Param({"3", "5"})
+	public int ruleSize;
+	
+	@Param({"1000"})
+	public int numColumns;
+	
+	@Param({"1000"})
+	public int numRows;
+	
+	@Param({"64"})
+	public int numRules;
+	
+	@Param({"1"})
+	public int numThreads;
+	
+	private String rootDirectory;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		rootDirectory = BenchmarkRules.newRootDirectory(radix, ruleSize, numColumns, numRows, numThreads,
+				"sweepEnd = " + numRules);
+	}
+	
+	@Setup(Level.Invocation)
+	public void deleteSweep()
+	{
+		new File(rootDirectory + "progress.txt").delete();
+		
+		//the output folder is named with a Windows separator, so outside of Windows
+		//the images are saved in the root directory with the folder in their names
+		for(String folder : new String[] {rootDirectory, rootDirectory + Global.outputFolderName})
+		{
+			File[] images = new File(folder).listFiles((directory, name) -> name.endsWith(".png"));
+			
+			if(images != null)
+				for(File image : images)
+					image.delete();
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		BenchmarkRules.delete(rootDirectory);
+	}
+	
+	/**
+	 * Runs the same steps as GenerateAll.main, and waits for the sweep to finish
+	 * 
+	 * @return the Settings of the sweep
+	 * @throws Exception if there is a problem with the settings files
+	 */
+	@Benchmark
+	public Settings generateAll() throws Exception
+	{
+		Settings settings = new Settings(rootDirectory, Global.outputFolderName);
+		
+		settings.generateRules();
+		settings.setMappedRules();
+		settings.setStartingRow();
+		
+		BigInteger end = BigInteger.valueOf(radix).pow(settings.dictionary.getNumPatterns());
+		if(settings.sweepEnd != null)
+			end = end.min(settings.sweepEnd);
+		
+		new RuleSweep(settings, settings.sweepStart.min(end), end).start();
+		
+		settings.awaitShutdown();
+		
+		return settings;
+	}
+}
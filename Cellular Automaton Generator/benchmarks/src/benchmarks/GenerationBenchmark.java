@@ -0,0 +1,112 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cellularautomaton.Alphabet;
+import cellularautomaton.CellularAutomaton;
+import cellularautomaton.Dictionary;
+import cellularautomaton.Row;
+
+/**
+ * class GenerationBenchmark to time generating Rows from a random rule: a single generation
+ * with Row.generate, into a new Row and into the same Row, looking up the outputs of patterns with Dictionary.getOutput, and a whole
+ * CellularAutomaton with CellularAutomaton.generate, the way a sweep generates each rule
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark
+{
+	/**
+	 * the number of patterns looked up by each call of dictionaryGetOutput
+	 */
+	private static final int numLookups = 1 << 10;
+	
+	@Param({"2", "3"})
+	public int radix;
+	
+	@Param({"3", "5"})
+	public int ruleSize;
+	
+	@Param({"1000", "100000"})
+	public int numColumns;
+	
+	@Param({"1000"})
+	public int numRows;
+	
+	private Dictionary dictionary;
+	private Row row;
+	private Row child;
+	private CellularAutomaton automaton;
+	
+	/**
+	 * random pattern numbers to look up, drawn once so drawing them is not timed
+	 */
+	private int[] indices;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		Alphabet alphabet = BenchmarkRules.newAlphabet(radix);
+		
+		dictionary = BenchmarkRules.newDictionary(alphabet, ruleSize);
+		row = BenchmarkRules.newRow(alphabet, numColumns, ruleSize);
+		child = new Row(numColumns, ruleSize);
+		automaton = new CellularAutomaton(numRows);
+		
+		Random random = new Random(BenchmarkRules.seed);
+		
+		indices = new int[numLookups];
+		for(int i = 0; i < numLookups; i++)
+			indices[i] = random.nextInt(dictionary.getNumPatterns());
+	}
+	
+	@Benchmark
+	public Row rowGenerate()
+	{
+		return Row.generate(row, dictionary);
+	}
+	
+	@Benchmark
+	public Row rowGenerateInto()
+	{
+		return Row.generate(row, dictionary, child);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(numLookups)
+	public int dictionaryGetOutput()
+	{
+		int sum = 0;
+		
+		for(int i = 0; i < numLookups; i++)
+			sum += dictionary.getOutput(indices[i]);
+		
+		return sum;
+	}
+	
+	@Benchmark
+	public CellularAutomaton cellularAutomatonGenerate()
+	{
+		automaton.generate(row, dictionary);
+		
+		return automaton;
+	}
+}
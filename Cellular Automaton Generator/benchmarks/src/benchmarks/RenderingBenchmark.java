@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cellularautomaton.CellularAutomaton;
+import drivers.Global;
+import drivers.Settings;
+
+/**
+ * class RenderingBenchmark to time turning a generated CellularAutomaton into an image, as a
+ * BufferedImage with getBufferedImage, and as a ".png" file saved by Settings.saveImage. The
+ * CellularAutomaton is generated once, so only the rendering is timed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderingBenchmark
+{
+	@Param({"2", "3"})
+	public int radix;
+	
+	@Param({"3", "5"})
+	public int ruleSize;
+	
+	@Param({"1000", "10000"})
+	public int numColumns;
+	
+	@Param({"1000"})
+	public int numRows;
+	
+	private String rootDirectory;
+	private Settings settings;
+	private CellularAutomaton automaton;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		rootDirectory = BenchmarkRules.newRootDirectory(radix, ruleSize, numColumns, numRows, 1);
+		
+		settings = new Settings(rootDirectory, Global.outputFolderName);
+		settings.setStartingRow();
+		
+		settings.dictionary = BenchmarkRules.newDictionary(settings.alphabet, ruleSize);
+		automaton = settings.getCellularAutomaton();
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		settings.shutdown();
+		BenchmarkRules.delete(rootDirectory);
+	}
+	
+	@Benchmark
+	public BufferedImage getBufferedImage() throws Exception
+	{
+		return automaton.getBufferedImage();
+	}
+	
+	@Benchmark
+	public void saveImage()
+	{
+		settings.saveImage(automaton, "benchmark.png");
+	}
+}
@@ -0,0 +1,257 @@
+package cellularautomaton;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * class DictionaryTest to check that a Dictionary mapped from a table file reads the same
+ * rules as a Dictionary on the heap, and that the table file is shared by Dictionaries
+ * reading the same rules and only rebuilt when the rules change, the same as a compiled file of rules
+ */
+class DictionaryTest
+{
+	@TempDir
+	File directory;
+	
+	/**
+	 * Writes the rules of a Dictionary to a file of rules, in a random order
+	 * 
+	 * @param dictionary the rules to write
+	 * @param file the file to write
+	 * @param random the Random to shuffle the rules with
+	 * @throws Exception if the file can not be written
+	 */
+	private static void writeRules(Dictionary dictionary, File file, Random random) throws Exception
+	{
+		Alphabet alphabet = dictionary.getAlphabet();
+		int patternSize = dictionary.getPatternSize();
+		int radix = dictionary.getRadix();
+		
+		ArrayList<Integer> indices = new ArrayList<Integer>();
+		for(int index = 0; index < dictionary.getNumPatterns(); index++)
+			if(dictionary.getOutput(index) >= 0)
+				indices.add(index);
+		Collections.shuffle(indices, random);
+		
+		try(PrintWriter writer = new PrintWriter(file))
+		{
+			for(int index : indices)
+			{
+				String key = "";
+				for(int i = 0, rest = index; i < patternSize; i++, rest /= radix)
+					key = alphabet.get(rest % radix).id + " " + key;
+				
+				writer.println(key + "-> " + alphabet.get(dictionary.getOutput(index)).id);
+			}
+		}
+	}
+	
+	private static int[] getOutputs(Dictionary dictionary)
+	{
+		int[] outputs = new int[dictionary.getNumPatterns()];
+		
+		for(int index = 0; index < outputs.length; index++)
+			outputs[index] = dictionary.getOutput(index);
+		
+		return outputs;
+	}
+	
+	private static int[] getKeys(Dictionary dictionary)
+	{
+		int[] keys = new int[dictionary.getNumKeys()];
+		
+		for(int i = 0; i < keys.length; i++)
+			keys[i] = dictionary.getKeyIndex(i);
+		
+		return keys;
+	}
+	
+	private static Object getFileKey(File file) throws Exception
+	{
+		return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+	}
+	
+	@Test
+	void tableFileIsSharedUntilTheRulesChange() throws Exception
+	{
+		Random random = new Random(1);
+		
+		Alphabet alphabet = TestRules.newAlphabet(3, 0);
+		Dictionary rules = TestRules.newDictionary(alphabet, 5, random);
+		
+		File rulesTXT = new File(directory, "rules.txt");
+		File table = new File(directory, "rules.table");
+		writeRules(rules, rulesTXT, new Random(2));
+		
+		Dictionary first = new Dictionary(alphabet, 5, RuleMode.PATTERN, table);
+		first.setOutputMap(rulesTXT);
+		
+		assertArrayEquals(getOutputs(rules), getOutputs(first));
+		
+		Object fileKey = getFileKey(table);
+		
+		//a second Dictionary reading the same rules maps the table file instead of building its own,
+		//even after the rules are rewritten the same
+		writeRules(rules, rulesTXT, new Random(2));
+		rulesTXT.setLastModified(rulesTXT.lastModified() + 2000);
+		
+		Dictionary second = new Dictionary(alphabet, 5, RuleMode.PATTERN, table);
+		second.setOutputMap(rulesTXT);
+		
+		assertEquals(fileKey, getFileKey(table));
+		assertArrayEquals(getOutputs(first), getOutputs(second));
+		assertArrayEquals(getKeys(first), getKeys(second));
+		
+		//a copy that is remapped changes neither the Dictionary it was copied from nor the table file
+		Dictionary copy = second.clone();
+		copy.remap(new ArrayList<Integer>(Collections.nCopies(copy.getNumKeys(), 2)));
+		
+		assertArrayEquals(getOutputs(rules), getOutputs(second));
+		assertArrayEquals(getOutputs(rules), getOutputs(second.clone()));
+		
+		//new rules rebuild the table file, and the Dictionaries mapping the old one keep their rules
+		Dictionary changed = TestRules.newDictionary(alphabet, 5, random);
+		writeRules(changed, rulesTXT, random);
+		
+		Dictionary third = new Dictionary(alphabet, 5, RuleMode.PATTERN, table);
+		third.setOutputMap(rulesTXT);
+		
+		assertNotEquals(fileKey, getFileKey(table));
+		assertArrayEquals(getOutputs(changed), getOutputs(third));
+		assertArrayEquals(getOutputs(rules), getOutputs(first));
+		assertArrayEquals(getOutputs(rules), getOutputs(second));
+		
+		//only the table file and the rules are left in the directory
+		assertEquals(2, directory.list().length);
+	}
+	
+	@Test
+	void compiledRulesAreReadUntilTheRulesChange() throws Exception
+	{
+		Random random = new Random(4);
+		
+		Alphabet alphabet = TestRules.newAlphabet(3, 0);
+		Dictionary rules = TestRules.newDictionary(alphabet, 5, random);
+		
+		File rulesTXT = new File(directory, "rules.txt");
+		File rulesBIN = new File(directory, "rules.bin");
+		writeRules(rules, rulesTXT, new Random(5));
+		
+		Dictionary first = new Dictionary(alphabet, 5);
+		first.setOutputMap(rulesTXT, rulesBIN);
+		
+		assertArrayEquals(getOutputs(rules), getOutputs(first));
+		
+		//the same rules written again later are read from the compiled file, which is left as it is
+		writeRules(rules, rulesTXT, new Random(5));
+		rulesBIN.setLastModified(1000);
+		rulesTXT.setLastModified(rulesBIN.lastModified() + 2000);
+		
+		Dictionary second = new Dictionary(alphabet, 5);
+		second.setOutputMap(rulesTXT, rulesBIN);
+		
+		assertEquals(1000, rulesBIN.lastModified());
+		assertArrayEquals(getOutputs(rules), getOutputs(second));
+		assertArrayEquals(getKeys(first), getKeys(second));
+		
+		//new rules are compiled again, even when the compiled file looks newer than them
+		Dictionary changed = TestRules.newDictionary(alphabet, 5, random);
+		writeRules(changed, rulesTXT, random);
+		rulesTXT.setLastModified(0);
+		rulesBIN.setLastModified(System.currentTimeMillis());
+		
+		Dictionary third = new Dictionary(alphabet, 5);
+		third.setOutputMap(rulesTXT, rulesBIN);
+		
+		assertArrayEquals(getOutputs(changed), getOutputs(third));
+		
+		Dictionary fourth = new Dictionary(alphabet, 5);
+		fourth.setOutputMap(rulesTXT, rulesBIN);
+		
+		assertArrayEquals(getOutputs(changed), getOutputs(fourth));
+	}
+	
+	@Test
+	void implicitRulesShareTheTableFile() throws Exception
+	{
+		Alphabet alphabet = TestRules.newAlphabet(2, 1);
+		File table = new File(directory, "rules.table");
+		
+		Dictionary first = new Dictionary(alphabet, 9, RuleMode.PATTERN, table);
+		first.setOutputMap(alphabet.get("NULL"));
+		
+		Object fileKey = getFileKey(table);
+		
+		Dictionary second = new Dictionary(alphabet, 9, RuleMode.PATTERN, table);
+		second.setOutputMap(alphabet.get("NULL"));
+		
+		assertEquals(fileKey, getFileKey(table));
+		assertEquals(first.getNumPatterns(), second.getNumKeys());
+		
+		for(int index = 0; index < second.getNumPatterns(); index++)
+			assertEquals(1, second.getOutput(index));
+		
+		//rules of another Cell are other rules
+		Dictionary other = new Dictionary(alphabet, 9, RuleMode.PATTERN, table);
+		other.setOutputMap(alphabet.get(0));
+		
+		assertNotEquals(fileKey, getFileKey(table));
+		assertEquals(0, other.getOutput(5));
+		assertEquals(1, second.getOutput(5));
+	}
+	
+	@Test
+	void copiesOfASeedOnlyWriteThePagesThatChange() throws Exception
+	{
+		Random random = new Random(3);
+		
+		Alphabet alphabet = TestRules.newAlphabet(2, 1);
+		File table = new File(directory, "rules.table");
+		
+		//2^20 patterns, 256 pages
+		Dictionary dictionary = new Dictionary(alphabet, 20, RuleMode.PATTERN, table);
+		dictionary.setOutputMap(alphabet.get("NULL"));
+		
+		BigInteger start = new BigInteger(1 << 20, random);
+		
+		Dictionary seed = dictionary.clone(table);
+		RuleOdometer odometer = new RuleOdometer(2, seed.getNumPatterns());
+		odometer.set(start);
+		seed.remap(odometer, odometer.getNumDigits());
+		
+		Dictionary worker = seed.clone();
+		RuleOdometer workerOdometer = new RuleOdometer(odometer);
+		
+		seed.deleteTable();
+		assertEquals(1, directory.list().length);
+		
+		worker.remap(workerOdometer, workerOdometer.set(start.add(BigInteger.valueOf(1000))));
+		
+		assertTrue(worker.getNumWrittenPages() <= 1, worker.getNumWrittenPages() + " pages were written");
+		
+		for(int index = 0; index < worker.getNumPatterns(); index++)
+			assertEquals(workerOdometer.getDigit(index), worker.getOutput(index));
+		
+		//a copy of the worker holds the pages the worker wrote
+		Dictionary copy = worker.clone();
+		
+		for(int index = 0; index < 64; index++)
+			assertEquals(workerOdometer.getDigit(index), copy.getOutput(index));
+		
+		assertEquals(start.testBit(5000) ? 1 : 0, copy.getOutput(5000));
+	}
+}
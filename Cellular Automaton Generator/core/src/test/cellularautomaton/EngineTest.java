@@ -0,0 +1,379 @@
+package cellularautomaton;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * class EngineTest to check that every Engine, a RuleBatch, and a CellularAutomaton generate
+ * the same Rows as TestRules.step, for random rules and random starting Rows
+ */
+class EngineTest
+{
+	private static final int[] widths = {1, 2, 7, 100, 257};
+	
+	/**
+	 * Checks an Engine against TestRules.step one generation at a time
+	 * 
+	 * @param engine the Engine to check
+	 * @param dictionary the rules of the Engine
+	 * @param row the starting Row
+	 * @param numGenerations the number of generations to check
+	 */
+	private static void assertSteps(Engine engine, Dictionary dictionary, Row row, int numGenerations)
+	{
+		int[] expected = TestRules.getOrdinals(row);
+		int[] actual = new int[expected.length];
+		
+		engine.load(row);
+		
+		for(int generation = 0; generation < numGenerations; generation++)
+		{
+			engine.store(actual);
+			int g = generation;
+			assertArrayEquals(expected, actual, () -> engine.getClass().getSimpleName() + " differs at generation " + g);
+			
+			engine.step();
+			expected = TestRules.step(dictionary, expected);
+		}
+	}
+	
+	@Test
+	void generatorMatchesReference() throws Exception
+	{
+		Random random = new Random(1);
+		
+		for(int radix = 2; radix <= 4; radix++)
+			for(int patternSize = 1; patternSize <= 5; patternSize += 2)
+				for(int width : widths)
+				{
+					Alphabet alphabet = TestRules.newAlphabet(radix, radix - 1);
+					Dictionary dictionary = TestRules.newDictionary(alphabet, patternSize, random);
+					
+					assertSteps(new Generator(dictionary, width), dictionary,
+							TestRules.newRow(alphabet, width, patternSize, random), 20);
+				}
+	}
+	
+	@Test
+	void generatorWithoutCopiedOutputsMatchesReference() throws Exception
+	{
+		Random random = new Random(2);
+		
+		//3^11 patterns are too many to copy into the Generator, so it reads them from the Dictionary
+		Alphabet alphabet = TestRules.newAlphabet(3, 0);
+		Dictionary dictionary = TestRules.newDictionary(alphabet, 11, random);
+		
+		assertSteps(new Generator(dictionary, 300), dictionary, TestRules.newRow(alphabet, 300, 11, random), 20);
+	}
+	
+	@Test
+	void evenPatternSizesMatchReference() throws Exception
+	{
+		Random random = new Random(3);
+		
+		for(int patternSize = 2; patternSize <= 6; patternSize += 2)
+		{
+			Alphabet alphabet = TestRules.newAlphabet(2, 0);
+			Dictionary dictionary = TestRules.newDictionary(alphabet, patternSize, random);
+			Row row = TestRules.newRow(alphabet, 100, patternSize, random);
+			
+			assertSteps(new Generator(dictionary, 100), dictionary, row, 20);
+			assertSteps(new BitEngine(dictionary, 100), dictionary, row, 20);
+		}
+	}
+	
+	@Test
+	void bitEngineMatchesReference() throws Exception
+	{
+		Random random = new Random(4);
+		
+		for(int nullOrdinal = 0; nullOrdinal < 2; nullOrdinal++)
+			for(int patternSize = 1; patternSize <= 6; patternSize++)
+				for(int width : new int[] {1, 63, 64, 65, 200})
+				{
+					Alphabet alphabet = TestRules.newAlphabet(2, nullOrdinal);
+					Dictionary dictionary = TestRules.newDictionary(alphabet, patternSize, random);
+					
+					assertSteps(new BitEngine(dictionary, width), dictionary,
+							TestRules.newRow(alphabet, width, patternSize, random), 30);
+				}
+	}
+	
+	@Test
+	void blockedEngineMatchesReference() throws Exception
+	{
+		Random random = new Random(5);
+		
+		//wide enough for several tiles, the last of them partial
+		int width = 10000;
+		
+		for(int patternSize = 1; patternSize <= 5; patternSize += 2)
+		{
+			Alphabet alphabet = TestRules.newAlphabet(3, 1);
+			Dictionary dictionary = TestRules.newDictionary(alphabet, patternSize, random);
+			
+			assertSteps(new BlockedEngine(dictionary, width), dictionary,
+					TestRules.newRow(alphabet, width, patternSize, random), 20);
+		}
+	}
+	
+	@Test
+	void hashLifeEngineMatchesReference() throws Exception
+	{
+		Random random = new Random(6);
+		
+		for(int radix = 2; radix <= 3; radix++)
+			for(int patternSize = 1; patternSize <= 5; patternSize += 2)
+				for(int width : new int[] {1, 100, 300})
+				{
+					Alphabet alphabet = TestRules.newAlphabet(radix, 0);
+					Dictionary dictionary = TestRules.newDictionary(alphabet, patternSize, random);
+					Row row = TestRules.newRow(alphabet, width, patternSize, random);
+					
+					HashLifeEngine engine = new HashLifeEngine(dictionary, width);
+					engine.load(row);
+					
+					int[] expected = TestRules.getOrdinals(row);
+					int[] actual = new int[width];
+					
+					for(long generations : new long[] {64, 100, 1, 1000})
+					{
+						engine.advance(generations);
+						engine.store(actual);
+						
+						expected = TestRules.advance(dictionary, expected, generations);
+						assertArrayEquals(expected, actual, "HashLifeEngine differs after advancing by " + generations);
+					}
+				}
+	}
+	
+	@Test
+	void totalisticEngineMatchesReference() throws Exception
+	{
+		Random random = new Random(7);
+		
+		for(RuleMode ruleMode : new RuleMode[] {RuleMode.TOTALISTIC, RuleMode.OUTER_TOTALISTIC})
+			for(int radix = 2; radix <= 4; radix++)
+				for(int patternSize = 1; patternSize <= 9; patternSize += 2)
+					for(int width : widths)
+					{
+						Alphabet alphabet = TestRules.newAlphabet(radix, 0);
+						Dictionary dictionary = TestRules.newDictionary(alphabet, patternSize, ruleMode, random);
+						
+						assertSteps(new TotalisticEngine(dictionary, width), dictionary,
+								TestRules.newRow(alphabet, width, patternSize, random), 20);
+					}
+	}
+	
+	@Test
+	void ruleBatchMatchesReference() throws Exception
+	{
+		Random random = new Random(8);
+		
+		for(int patternSize = 1; patternSize <= 7; patternSize++)
+		{
+			Alphabet alphabet = TestRules.newAlphabet(2, patternSize % 2);
+			Dictionary dictionary = TestRules.newDictionary(alphabet, patternSize, random);
+			
+			if(!RuleBatch.supports(dictionary))
+				continue;
+			
+			int numRows = 50;
+			RuleBatch batch = new RuleBatch(dictionary, numRows);
+			
+			for(int numRules : new int[] {1, 13, RuleBatch.maxRules})
+			{
+				Dictionary[] rules = new Dictionary[numRules];
+				
+				batch.clear();
+				for(int i = 0; i < numRules; i++)
+				{
+					rules[i] = TestRules.newDictionary(alphabet, patternSize, random);
+					batch.add(rules[i]);
+				}
+				
+				Row row = TestRules.newRow(alphabet, 130, patternSize, random);
+				batch.generate(row);
+				
+				assertEquals(numRules, batch.size());
+				
+				for(int i = 0; i < numRules; i++)
+					assertRows(rules[i], row, batch.get(i).getGrid(), numRows);
+			}
+		}
+	}
+	
+	@Test
+	void cellularAutomatonMatchesReference() throws Exception
+	{
+		Random random = new Random(9);
+		
+		for(long rowStride : new long[] {1, 3, 64})
+		{
+			Alphabet alphabet = TestRules.newAlphabet(3, 2);
+			Dictionary dictionary = TestRules.newDictionary(alphabet, 3, random);
+			Row row = TestRules.newRow(alphabet, 90, 3, random);
+			
+			CellularAutomaton automaton = new CellularAutomaton(40);
+			automaton.setRowStride(rowStride);
+			automaton.generate(row, dictionary);
+			
+			int[] expected = TestRules.getOrdinals(row);
+			int[] actual = new int[expected.length];
+			
+			for(int i = 0; i < 40; i++)
+			{
+				automaton.getGrid().getOrdinals(i, actual);
+				assertArrayEquals(expected, actual, "row " + i + " with a stride of " + rowStride + " differs");
+				
+				expected = TestRules.advance(dictionary, expected, rowStride);
+			}
+		}
+	}
+	
+	/**
+	 * Generates a CellularAutomaton into its CellGrid, and again through a RowSink,
+	 * and checks every Row of both against TestRules.advance
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param row the starting Row
+	 * @param numRows the number of Rows to generate
+	 * @param rowStride the number of generations between Rows
+	 * @throws IOException if the RowSink fails, which it never does
+	 */
+	private static void assertCycles(Dictionary dictionary, Row row, int numRows, long rowStride) throws IOException
+	{
+		CellularAutomaton automaton = new CellularAutomaton(numRows);
+		automaton.setRowStride(rowStride);
+		automaton.generate(row, dictionary);
+		
+		ArrayList<int[]> streamed = new ArrayList<int[]>();
+		automaton.generate(row, dictionary, ordinals -> streamed.add(ordinals.clone()));
+		
+		assertEquals(numRows, streamed.size());
+		
+		int[] expected = TestRules.getOrdinals(row);
+		int[] actual = new int[expected.length];
+		
+		for(int i = 0; i < numRows; i++)
+		{
+			automaton.getGrid().getOrdinals(i, actual);
+			assertArrayEquals(expected, actual, "row " + i + " with a stride of " + rowStride + " differs");
+			assertArrayEquals(expected, streamed.get(i), "streamed row " + i + " with a stride of " + rowStride + " differs");
+			
+			expected = TestRules.advance(dictionary, expected, rowStride);
+		}
+	}
+	
+	@Test
+	void cellularAutomatonRepeatsCycles() throws Exception
+	{
+		Random random = new Random(12);
+		
+		Alphabet alphabet = TestRules.newAlphabet(2, 0);
+		Dictionary dictionary = TestRules.newDictionary(alphabet, 3, random);
+		
+		//every pattern generating NULL reaches a fixed point on the second Row, and
+		//flipping the middle Cell of every pattern cycles with a period of 2 from the first Row
+		int[] toNULL = new int[dictionary.getNumKeys()];
+		int[] flip = new int[dictionary.getNumKeys()];
+		for(int i = 0; i < flip.length; i++)
+			flip[i] = 1 - (dictionary.getKeyIndex(i) >> 1 & 1);
+		
+		for(int[] ruleNumber : new int[][] {toNULL, flip})
+		{
+			dictionary.remap(ruleNumber);
+			
+			for(long rowStride : new long[] {1, 2, 3})
+				assertCycles(dictionary, TestRules.newRow(alphabet, 60, 3, random), 50, rowStride);
+		}
+		
+		//a Row of 7 Cells in radix 2 has 128 states, and a Row of 4 Cells in radix 3 has 81, so
+		//200 Rows always reach a cycle, after a transient and with a period that depend on the rules
+		for(int radix = 2; radix <= 3; radix++)
+		{
+			Alphabet small = TestRules.newAlphabet(radix, 0);
+			int width = radix == 2 ? 7 : 4;
+			
+			for(int t = 0; t < 50; t++)
+				assertCycles(TestRules.newDictionary(small, 3, random), TestRules.newRow(small, width, 3, random), 200, 1 + random.nextInt(3));
+		}
+	}
+	
+	@Test
+	void reusedEngineFollowsRemappedRules() throws Exception
+	{
+		Random random = new Random(10);
+		
+		Alphabet alphabet = TestRules.newAlphabet(2, 0);
+		Dictionary dictionary = TestRules.newDictionary(alphabet, 3, random);
+		
+		Engine engine = null;
+		
+		for(int rule = 0; rule < 256; rule++)
+		{
+			int[] ruleNumber = new int[8];
+			for(int i = 0; i < 8; i++)
+				ruleNumber[i] = rule >> i & 1;
+			dictionary.remap(ruleNumber);
+			
+			engine = Engine.reuse(engine, dictionary, 70, 1);
+			assertSteps(engine, dictionary, TestRules.newRow(alphabet, 70, 3, random), 10);
+		}
+	}
+	
+	@Test
+	void rowGenerateFollowsRemappedRules() throws Exception
+	{
+		Random random = new Random(11);
+		
+		for(RuleMode ruleMode : new RuleMode[] {RuleMode.PATTERN, RuleMode.TOTALISTIC})
+		{
+			Alphabet alphabet = TestRules.newAlphabet(3, 0);
+			Dictionary dictionary = TestRules.newDictionary(alphabet, 3, ruleMode, random);
+			Row row = TestRules.newRow(alphabet, 50, 3, random);
+			Row child = new Row(50, 3);
+			
+			for(int t = 0; t < 5; t++)
+			{
+				assertArrayEquals(TestRules.step(dictionary, TestRules.getOrdinals(row)),
+						TestRules.getOrdinals(Row.generate(row, dictionary)));
+				assertArrayEquals(TestRules.step(dictionary, TestRules.getOrdinals(row)),
+						TestRules.getOrdinals(Row.generate(row, dictionary, child)));
+				
+				int[] ruleNumber = new int[dictionary.getNumKeys()];
+				for(int i = 0; i < ruleNumber.length; i++)
+					ruleNumber[i] = random.nextInt(3);
+				dictionary.remap(ruleNumber);
+			}
+		}
+	}
+	
+	/**
+	 * Checks the Rows of a CellGrid against TestRules.step
+	 * 
+	 * @param dictionary the rules the CellGrid was generated with
+	 * @param row the starting Row
+	 * @param grid the generated CellGrid
+	 * @param numRows the number of Rows of the CellGrid
+	 */
+	private static void assertRows(Dictionary dictionary, Row row, CellGrid grid, int numRows)
+	{
+		int[] expected = TestRules.getOrdinals(row);
+		int[] actual = new int[expected.length];
+		
+		for(int i = 0; i < numRows; i++)
+		{
+			grid.getOrdinals(i, actual);
+			assertArrayEquals(expected, actual, "row " + i + " differs");
+			
+			expected = TestRules.step(dictionary, expected);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package cellularautomaton;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * class PNGWriterTest to check that the images a PNGWriter writes are read back by ImageIO
+ * with the rgbValue of every Cell, for every bit depth and for RGB images
+ */
+class PNGWriterTest
+{
+	@TempDir
+	File directory;
+	
+	/**
+	 * Creates a CellGrid of random Cells
+	 * 
+	 * @param alphabet the Alphabet of the Cells
+	 * @param numRows the number of Rows
+	 * @param numColumns the number of Cells in each Row
+	 * @param random the Random to draw the Cells from
+	 * @return a new CellGrid
+	 */
+	private static CellGrid newGrid(Alphabet alphabet, int numRows, int numColumns, Random random)
+	{
+		CellGrid grid = new CellGrid(alphabet, numRows, numColumns);
+		
+		for(int row = 0; row < numRows; row++)
+			for(int col = 0; col < numColumns; col++)
+				grid.set(row, col, random.nextInt(alphabet.numCells()));
+		
+		return grid;
+	}
+	
+	/**
+	 * Reads an image with ImageIO and checks that every pixel has the rgbValue of its Cell
+	 * 
+	 * @param grid the Cells the image was written from
+	 * @param file the image
+	 * @throws Exception if the image can not be read
+	 */
+	private static void assertImage(CellGrid grid, File file) throws Exception
+	{
+		BufferedImage image = ImageIO.read(file);
+		
+		assertEquals(grid.getNumColumns(), image.getWidth());
+		assertEquals(grid.getNumRows(), image.getHeight());
+		
+		Alphabet alphabet = grid.getAlphabet();
+		
+		for(int row = 0; row < grid.getNumRows(); row++)
+			for(int col = 0; col < grid.getNumColumns(); col++)
+				assertEquals(alphabet.get(grid.getOrdinal(row, col)).rgbValue, image.getRGB(col, row) & 0xFFFFFF,
+						"pixel (" + col + ", " + row + ") of an image of " + alphabet.numCells() + " Cells differs");
+	}
+	
+	@Test
+	void writtenGridsReadBack() throws Exception
+	{
+		Random random = new Random(1);
+		
+		for(int radix : new int[] {2, 3, 16, 200, 300})
+			for(int numColumns : new int[] {1, 7, 333})
+			{
+				CellGrid grid = newGrid(TestRules.newAlphabet(radix, 0), 40, numColumns, random);
+				
+				File file = new File(directory, "grid" + radix + "x" + numColumns + ".png");
+				PNGWriter.write(grid, file, 6, 1);
+				
+				assertImage(grid, file);
+			}
+	}
+	
+	@Test
+	void blocksCompressedInParallelReadBack() throws Exception
+	{
+		Random random = new Random(2);
+		
+		//enough Rows for several blocks of image data
+		CellGrid grid = newGrid(TestRules.newAlphabet(16, 0), 400, 1000, random);
+		
+		for(int level : new int[] {0, 1, 9})
+		{
+			File file = new File(directory, "parallel" + level + ".png");
+			PNGWriter.write(grid, file, level, 4);
+			
+			assertImage(grid, file);
+		}
+	}
+	
+	@Test
+	void streamedRowsReadBack() throws Exception
+	{
+		Random random = new Random(3);
+		
+		Alphabet alphabet = TestRules.newAlphabet(3, 0);
+		Dictionary dictionary = TestRules.newDictionary(alphabet, 3, random);
+		Row row = TestRules.newRow(alphabet, 500, 3, random);
+		
+		File file = new File(directory, "streamed.png");
+		
+		CellularAutomaton automaton = new CellularAutomaton(300);
+		try(PNGWriter writer = new PNGWriter(file, alphabet, row.size(), 300))
+		{
+			automaton.generate(row, dictionary, writer);
+		}
+		
+		automaton.generate(row, dictionary);
+		assertImage(automaton.getGrid(), file);
+	}
+}
@@ -0,0 +1,54 @@
+package cellularautomaton;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * class RuleClassifierTest to check that a RuleClassifier classifies the Rows of the image,
+ * rowStride generations apart, rather than every generation
+ */
+class RuleClassifierTest
+{
+	/**
+	 * Creates the rules that flip the middle Cell of every pattern, whose Rows alternate with a period of 2
+	 * 
+	 * @param alphabet an Alphabet of two Cells
+	 * @return the rules
+	 * @throws Exception if the rules can not be created
+	 */
+	private static Dictionary newFlipRules(Alphabet alphabet) throws Exception
+	{
+		Dictionary dictionary = TestRules.newDictionary(alphabet, 3, new Random(1));
+		
+		int[] ruleNumber = new int[dictionary.getNumKeys()];
+		for(int i = 0; i < ruleNumber.length; i++)
+			ruleNumber[i] = 1 - (dictionary.getKeyIndex(i) >> 1 & 1);
+		dictionary.remap(ruleNumber);
+		
+		return dictionary;
+	}
+	
+	@Test
+	void rowsAreTheRowsOfTheImage() throws Exception
+	{
+		Random random = new Random(2);
+		
+		Alphabet alphabet = TestRules.newAlphabet(2, 0);
+		Dictionary dictionary = newFlipRules(alphabet);
+		Row row = TestRules.newRow(alphabet, 50, 3, random);
+		
+		long[] strides = {1, 2, 3, 64, 100, 1001};
+		RuleClass[] expected = {RuleClass.PERIODIC, RuleClass.FIXED, RuleClass.PERIODIC, RuleClass.FIXED, RuleClass.FIXED, RuleClass.PERIODIC};
+		
+		for(int i = 0; i < strides.length; i++)
+		{
+			RuleClassifier classifier = new RuleClassifier(100);
+			classifier.setRowStride(strides[i]);
+			
+			assertEquals(expected[i], classifier.classify(row, dictionary), "a row stride of " + strides[i]);
+		}
+	}
+}
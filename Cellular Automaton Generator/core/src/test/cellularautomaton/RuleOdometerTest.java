@@ -0,0 +1,109 @@
+package cellularautomaton;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * class RuleOdometerTest to check that a RuleOdometer and a RadixConverter agree with
+ * BigInteger on the digits of rule numbers, and that a RuleOdometer reports every digit it changes
+ */
+class RuleOdometerTest
+{
+	/**
+	 * Gets the digit of a number the slow way
+	 * 
+	 * @param n the number
+	 * @param radix the radix of the digits
+	 * @param i the index of the digit, 0 for the least significant digit
+	 * @return the digit
+	 */
+	private static int getDigit(BigInteger n, int radix, int i)
+	{
+		return n.divide(BigInteger.valueOf(radix).pow(i)).mod(BigInteger.valueOf(radix)).intValue();
+	}
+	
+	private static void assertDigits(BigInteger n, int radix, RuleOdometer odometer)
+	{
+		for(int i = 0; i < odometer.getNumDigits(); i++)
+			assertEquals(getDigit(n, radix, i), odometer.getDigit(i), "digit " + i + " of " + n + " in radix " + radix);
+	}
+	
+	@Test
+	void setMatchesBigInteger() throws Exception
+	{
+		Random random = new Random(1);
+		
+		for(int radix : new int[] {2, 3, 4, 10, 256, 300})
+			for(int numDigits : new int[] {1, 5, 40, 300})
+			{
+				RuleOdometer odometer = new RuleOdometer(radix, numDigits);
+				BigInteger max = BigInteger.valueOf(radix).pow(numDigits);
+				
+				for(int t = 0; t < 20; t++)
+				{
+					//numbers of every size, most far smaller than the largest rule number
+					BigInteger n = new BigInteger(1 + random.nextInt(max.bitLength()), random).mod(max);
+					
+					odometer.set(n);
+					assertDigits(n, radix, odometer);
+					
+					int[] digits = new int[numDigits];
+					for(int i = 0; i < numDigits; i++)
+						digits[i] = odometer.getDigit(i);
+					
+					assertEquals(n, new RadixConverter(radix, numDigits).toNumber(digits));
+				}
+			}
+	}
+	
+	@Test
+	void setReportsTheDigitsItChanged() throws Exception
+	{
+		Random random = new Random(2);
+		
+		RuleOdometer odometer = new RuleOdometer(3, 200);
+		BigInteger n = new BigInteger(300, random);
+		odometer.set(n);
+		
+		for(int t = 0; t < 50; t++)
+		{
+			BigInteger next = n.add(BigInteger.valueOf(random.nextInt(1000)));
+			
+			int highest = 0;
+			for(int i = 0; i < 200; i++)
+				if(getDigit(n, 3, i) != getDigit(next, 3, i))
+					highest = i + 1;
+			
+			assertEquals(highest, odometer.set(next));
+			n = next;
+		}
+	}
+	
+	@Test
+	void incrementMatchesAddingOne() throws Exception
+	{
+		for(int radix : new int[] {2, 3, 300})
+		{
+			RuleOdometer odometer = new RuleOdometer(radix, 20);
+			BigInteger n = BigInteger.valueOf(radix).pow(20).subtract(BigInteger.valueOf(700));
+			odometer.set(n);
+			
+			for(int t = 0; t < 1000; t++)
+			{
+				odometer.increment();
+				n = n.add(BigInteger.ONE).mod(BigInteger.valueOf(radix).pow(20));
+				
+				assertDigits(n, radix, odometer);
+			}
+			
+			RuleOdometer copy = new RuleOdometer(odometer);
+			odometer.increment();
+			
+			assertDigits(n, radix, copy);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package cellularautomaton;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * class RuleSymmetryTest to check that a RuleSymmetry splits the rule numbers into classes
+ * whose members generate the transformed images of their canonical rule number
+ */
+class RuleSymmetryTest
+{
+	/**
+	 * Creates a Dictionary with a rule for every pattern, remapped to a rule number
+	 * 
+	 * @param alphabet the Alphabet of the rules
+	 * @param patternSize the number of Cells in each pattern
+	 * @param ruleNumber the rule number
+	 * @return a new Dictionary with the rules of the rule number
+	 * @throws Exception if there are too many patterns
+	 */
+	private static Dictionary newDictionary(Alphabet alphabet, int patternSize, BigInteger ruleNumber) throws Exception
+	{
+		Dictionary dictionary = new Dictionary(alphabet, patternSize);
+		dictionary.setOutputMap(alphabet.get("NULL"));
+		
+		RuleOdometer odometer = new RuleOdometer(dictionary.getRadix(), dictionary.getNumKeys());
+		odometer.set(ruleNumber);
+		dictionary.remap(odometer, odometer.getNumDigits());
+		
+		return dictionary;
+	}
+	
+	/**
+	 * Creates a Row of the Cells with the specified ordinals
+	 * 
+	 * @param alphabet the Alphabet of the Cells
+	 * @param patternSize the number of Cells in each pattern
+	 * @param ordinals the ordinal of each Cell of the Row
+	 * @return a new Row
+	 */
+	private static Row rowOf(Alphabet alphabet, int patternSize, int... ordinals)
+	{
+		Cell[] cells = new Cell[ordinals.length];
+		for(int col = 0; col < cells.length; col++)
+			cells[col] = alphabet.get(ordinals[col]);
+		
+		return new Row(cells, patternSize);
+	}
+	
+	/**
+	 * Mirrors and recolors the ordinals of a Row the way a transform is described
+	 * 
+	 * @param alphabet the Alphabet of the Cells
+	 * @param description the description of the transform
+	 * @param row the ordinals of the Row
+	 * @return the ordinals of the transformed Row
+	 */
+	private static int[] transform(Alphabet alphabet, String description, int[] row)
+	{
+		String[] tokens = description.split(" ");
+		int[] transformed = new int[row.length];
+		
+		for(int col = 0; col < row.length; col++)
+		{
+			int from = row[tokens[0].equals("mirror") ? row.length - 1 - col : col];
+			transformed[col] = alphabet.get(tokens[1 + from]).ordinal;
+		}
+		
+		return transformed;
+	}
+	
+	@Test
+	void elementaryRulesFormOneHundredSixtyClasses() throws Exception
+	{
+		Alphabet alphabet = TestRules.newAlphabet(2, 0);
+		Dictionary dictionary = newDictionary(alphabet, 3, BigInteger.ZERO);
+		RuleSymmetry symmetry = new RuleSymmetry(dictionary, rowOf(alphabet, 3, 0, 0, 1, 0, 0));
+		
+		assertEquals(2, symmetry.size());
+		
+		//every rule number is either canonical or a member of exactly one canonical rule number
+		RuleOdometer odometer = new RuleOdometer(2, dictionary.getNumKeys());
+		HashSet<BigInteger> covered = new HashSet<BigInteger>();
+		int numClasses = 0;
+		
+		for(int ruleNumber = 0; ruleNumber < 256; ruleNumber++)
+		{
+			odometer.set(BigInteger.valueOf(ruleNumber));
+			
+			if(symmetry.isCanonical(odometer))
+			{
+				numClasses++;
+				assertTrue(covered.add(BigInteger.valueOf(ruleNumber)));
+				
+				for(int transform : symmetry.getMemberTransforms(odometer))
+				{
+					BigInteger member = symmetry.getMember(odometer, transform);
+					
+					assertTrue(member.intValue() > ruleNumber, member + " is smaller than its canonical rule number " + ruleNumber);
+					assertTrue(covered.add(member), member + " is in two classes");
+				}
+			}
+		}
+		
+		assertEquals(160, numClasses);
+		assertEquals(256, covered.size());
+	}
+	
+	@Test
+	void membersGenerateTheTransformedImages() throws Exception
+	{
+		Random random = new Random(1);
+		
+		//mirroring swaps the two Cells of the starting Row in radix 3, and
+		//the two Cells left out of the starting Row are swapped in radix 4
+		int[][] rows = {{0, 1, 1, 0, 2, 2, 0}, {0, 1, 0, 0, 0, 1, 0}};
+		int[] numTransforms = {2, 4};
+		
+		for(int radix = 3; radix <= 4; radix++)
+		{
+			Alphabet alphabet = TestRules.newAlphabet(radix, 0);
+			int[] startingRow = rows[radix - 3];
+			
+			RuleSymmetry symmetry = new RuleSymmetry(newDictionary(alphabet, 3, BigInteger.ZERO), rowOf(alphabet, 3, startingRow));
+			assertEquals(numTransforms[radix - 3], symmetry.size());
+			
+			BigInteger numRules = BigInteger.valueOf(radix).pow(radix * radix * radix);
+			RuleOdometer odometer = new RuleOdometer(radix, radix * radix * radix);
+			
+			for(int t = 0; t < 20; t++)
+			{
+				BigInteger ruleNumber = new BigInteger(numRules.bitLength(), random).mod(numRules);
+				odometer.set(ruleNumber);
+				
+				Dictionary dictionary = newDictionary(alphabet, 3, ruleNumber);
+				HashSet<BigInteger> members = new HashSet<BigInteger>();
+				
+				for(int transform : symmetry.getMemberTransforms(odometer))
+				{
+					BigInteger member = symmetry.getMember(odometer, transform);
+					assertNotEquals(ruleNumber, member);
+					assertTrue(members.add(member), member + " is listed twice");
+				}
+				
+				for(int transform = 0; transform < symmetry.size(); transform++)
+				{
+					BigInteger member = symmetry.getMember(odometer, transform);
+					assertTrue(member.equals(ruleNumber) || members.contains(member), member + " is left out of the class of " + ruleNumber);
+					
+					Dictionary transformed = newDictionary(alphabet, 3, member);
+					String description = symmetry.describe(transform);
+					
+					int[] row = startingRow;
+					int[] transformedRow = startingRow;
+					for(int generation = 1; generation <= 20; generation++)
+					{
+						row = TestRules.step(dictionary, row);
+						transformedRow = TestRules.step(transformed, transformedRow);
+						
+						assertArrayEquals(transform(alphabet, description, row), transformedRow,
+								"generation " + generation + " of " + member + " (" + description + ") of " + ruleNumber + " in radix " + radix);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package cellularautomaton;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * class TestRules to build the Alphabets, random rules, and random Rows the tests generate with,
+ * and to generate Rows the slow and obvious way, one pattern of Cells at a time, so the engines
+ * can be checked against it
+ */
+class TestRules
+{
+	/**
+	 * Creates an Alphabet of the specified number of Cells, "C0", "C1", ..., with NULL set to the specified Cell
+	 * 
+	 * @param radix the number of Cells in the Alphabet
+	 * @param nullOrdinal the ordinal of the Cell NULL is set to
+	 * @return a new Alphabet
+	 * @throws Exception if the Alphabet could not be created
+	 */
+	public static Alphabet newAlphabet(int radix, int nullOrdinal) throws Exception
+	{
+		Alphabet alphabet = new Alphabet();
+		
+		for(int i = 0; i < radix; i++)
+			alphabet.add(new Cell("C" + i, (i * 97 & 0xFF) << 16 | i));
+		
+		alphabet.setNULL(alphabet.get(nullOrdinal).rgbValue);
+		
+		return alphabet;
+	}
+	
+	/**
+	 * Creates a Dictionary that maps each pattern to a random Cell, and leaves about
+	 * one pattern in ten without a rule, so those patterns generate NULL
+	 * 
+	 * @param alphabet the Alphabet of the rules
+	 * @param patternSize the number of Cells in each pattern
+	 * @param ruleMode what the output of a Cell depends on
+	 * @param random the Random to draw the rules from
+	 * @return a new Dictionary with a random rule
+	 * @throws Exception if there are too many patterns
+	 */
+	public static Dictionary newDictionary(Alphabet alphabet, int patternSize, RuleMode ruleMode, Random random) throws Exception
+	{
+		Dictionary dictionary = new Dictionary(alphabet, patternSize, ruleMode, null);
+		dictionary.setOutputMap(alphabet.get("NULL"));
+		
+		ArrayList<Integer> ruleNumber = new ArrayList<Integer>();
+		for(int i = 0; i < dictionary.getNumKeys(); i++)
+			ruleNumber.add(random.nextInt(10) == 0 ? -1 : random.nextInt(alphabet.numCells()));
+		
+		dictionary.remap(ruleNumber);
+		
+		return dictionary;
+	}
+	
+	/**
+	 * Creates a Dictionary in RuleMode.PATTERN with random rules
+	 * 
+	 * @param alphabet the Alphabet of the rules
+	 * @param patternSize the number of Cells in each pattern
+	 * @param random the Random to draw the rules from
+	 * @return a new Dictionary with a random rule
+	 * @throws Exception if there are too many patterns
+	 */
+	public static Dictionary newDictionary(Alphabet alphabet, int patternSize, Random random) throws Exception
+	{
+		return newDictionary(alphabet, patternSize, RuleMode.PATTERN, random);
+	}
+	
+	/**
+	 * Creates a Row of random Cells
+	 * 
+	 * @param alphabet the Alphabet of the Cells
+	 * @param numColumns the number of Cells in the Row
+	 * @param patternSize the number of Cells in each pattern
+	 * @param random the Random to draw the Cells from
+	 * @return a new Row of random Cells
+	 */
+	public static Row newRow(Alphabet alphabet, int numColumns, int patternSize, Random random)
+	{
+		Cell[] cells = new Cell[numColumns];
+		for(int col = 0; col < numColumns; col++)
+			cells[col] = alphabet.get(random.nextInt(alphabet.numCells()));
+		
+		return new Row(cells, patternSize);
+	}
+	
+	/**
+	 * Gets the ordinals of the Cells of a Row
+	 * 
+	 * @param row the Row
+	 * @return the ordinal of each Cell of the Row
+	 */
+	public static int[] getOrdinals(Row row)
+	{
+		int[] ordinals = new int[row.size()];
+		
+		for(int col = 0; col < ordinals.length; col++)
+			ordinals[col] = row.get(col).ordinal;
+		
+		return ordinals;
+	}
+	
+	/**
+	 * Generates the next Row the slow way, by building the pattern of Cells centered on
+	 * each Cell, with NULL past the ends of the Row, and looking up its output
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param parent the ordinals of the Cells of the parent Row
+	 * @return the ordinals of the Cells of the generated Row
+	 */
+	public static int[] step(Dictionary dictionary, int[] parent)
+	{
+		Alphabet alphabet = dictionary.getAlphabet();
+		Cell NULL = alphabet.get("NULL");
+		
+		int patternSize = dictionary.getPatternSize();
+		int leftPadding = patternSize / 2;
+		
+		int[] child = new int[parent.length];
+		Cell[] pattern = new Cell[patternSize];
+		
+		for(int col = 0; col < parent.length; col++)
+		{
+			for(int i = 0; i < patternSize; i++)
+			{
+				int c = col - leftPadding + i;
+				pattern[i] = c < 0 || c >= parent.length ? NULL : alphabet.get(parent[c]);
+			}
+			
+			int output = dictionary.getOutput(dictionary.getIndex(pattern));
+			child[col] = output < 0 ? NULL.ordinal : output;
+		}
+		
+		return child;
+	}
+	
+	/**
+	 * Generates a Row the specified number of generations after a Row the slow way
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param parent the ordinals of the Cells of the first Row
+	 * @param generations the number of generations to advance by
+	 * @return the ordinals of the Cells of the generated Row
+	 */
+	public static int[] advance(Dictionary dictionary, int[] parent, long generations)
+	{
+		for(long i = 0; i < generations; i++)
+			parent = step(dictionary, parent);
+		
+		return parent;
+	}
+}
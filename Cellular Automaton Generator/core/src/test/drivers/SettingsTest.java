@@ -0,0 +1,94 @@
+package drivers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cellularautomaton.Cell;
+import cellularautomaton.CellularAutomaton;
+import cellularautomaton.Row;
+
+/**
+ * class SettingsTest to check that deduplicateImages only reuses a saved image
+ * that has the same Cells in the same colors
+ */
+class SettingsTest
+{
+	@TempDir
+	File directory;
+	
+	/**
+	 * Writes "settings.txt" and "alphabet.txt" to the directory and reads them into new Settings
+	 * 
+	 * @param whiteRGB the rgbValue of the NULL Cell and of the Cell "W"
+	 * @param blackRGB the rgbValue of the Cell "B"
+	 * @return the new Settings
+	 * @throws Exception if there is a problem writing the files
+	 */
+	private Settings newSettings(String whiteRGB, String blackRGB) throws Exception
+	{
+		Files.writeString(new File(directory, "settings.txt").toPath(), ""
+				+ "ruleSize = 3\r\n"
+				+ "NULLrgbVal = " + whiteRGB + "\r\n"
+				+ "numRows = 10\r\n"
+				+ "numThreads = 1\r\n"
+				+ "randomizedRowSize = 8\r\n"
+				+ "deduplicateImages = true\r\n");
+		Files.writeString(new File(directory, "alphabet.txt").toPath(), ""
+				+ "W = " + whiteRGB + "\r\n"
+				+ "B = " + blackRGB + "\r\n");
+		
+		return new Settings(directory.getPath() + File.separator, "output" + File.separator);
+	}
+	
+	/**
+	 * Generates a CellularAutomaton that starts from alternating Cells "B" and "W"
+	 * and then only has NULL Cells
+	 * 
+	 * @param settings the Settings with the Alphabet and Dictionary to generate with
+	 * @return the generated CellularAutomaton
+	 */
+	private static CellularAutomaton newAutomaton(Settings settings)
+	{
+		settings.dictionary.setOutputMap(settings.alphabet.get("NULL"));
+		
+		Cell[] cells = new Cell[8];
+		for(int i = 0; i < cells.length; i++)
+			cells[i] = settings.alphabet.get(i % 2 == 0 ? "B" : "W");
+		
+		CellularAutomaton automaton = new CellularAutomaton(settings.numRows);
+		automaton.generate(new Row(cells, settings.dictionary.getPatternSize()), settings.dictionary);
+		return automaton;
+	}
+	
+	@Test
+	void savesAgainAfterThePaletteChanges() throws Exception
+	{
+		File output = new File(directory, "output");
+		
+		Settings settings = newSettings("FFFFFF", "000000");
+		settings.saveImage(newAutomaton(settings), "a.png");
+		settings.saveImage(newAutomaton(settings), "b.png");
+		
+		assertEquals(0x000000, ImageIO.read(new File(output, "b.png")).getRGB(0, 0) & 0xFFFFFF);
+		
+		//the same Cells in other colors are a new image, even under the name of the old one
+		settings = newSettings("FFFF00", "0000FF");
+		settings.saveImage(newAutomaton(settings), "a.png");
+		
+		BufferedImage image = ImageIO.read(new File(output, "a.png"));
+		assertEquals(0x0000FF, image.getRGB(0, 0) & 0xFFFFFF);
+		assertEquals(0xFFFF00, image.getRGB(1, 0) & 0xFFFFFF);
+		assertEquals(0xFFFF00, image.getRGB(0, 1) & 0xFFFFFF);
+		
+		assertFalse(new File(directory, "errorlog.txt").exists());
+	}
+}
@@ -0,0 +1,104 @@
+package drivers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * class SweepJournalTest to check that a SweepJournal merges the ranges it completes,
+ * and only resumes the journal of a sweep with the same description
+ */
+class SweepJournalTest
+{
+	@TempDir
+	File directory;
+	
+	/**
+	 * Opens a journal, completes the ranges, and closes it
+	 * 
+	 * @param file the file of the journal
+	 * @param description the line describing the sweep
+	 * @param ranges the first and last rule number of each range to complete
+	 * @throws Exception if there is a problem writing the journal
+	 */
+	private static void complete(File file, String description, long[]... ranges) throws Exception
+	{
+		try(SweepJournal journal = new SweepJournal(file, description))
+		{
+			for(long[] range : ranges)
+				journal.complete(range[0], range[1]);
+		}
+	}
+	
+	@Test
+	void mergesCompletedRanges() throws Exception
+	{
+		File file = new File(directory, "progress.txt");
+		complete(file, "RuleSweep 0 100", new long[] {0, 10}, new long[] {20, 30}, new long[] {10, 20}, new long[] {40, 50}, new long[] {45, 60});
+		
+		try(SweepJournal journal = new SweepJournal(file, "RuleSweep 0 100"))
+		{
+			assertTrue(journal.isResumed());
+			
+			assertEquals(30, journal.skipCompleted(0));
+			assertEquals(30, journal.skipCompleted(15));
+			assertEquals(30, journal.skipCompleted(30));
+			assertEquals(35, journal.skipCompleted(35));
+			assertEquals(60, journal.skipCompleted(40));
+			assertEquals(60, journal.skipCompleted(60));
+		}
+		
+		//the journal is written back with the merged ranges
+		assertEquals(List.of("RuleSweep 0 100", "0 30", "40 60"), Files.readAllLines(file.toPath()));
+	}
+	
+	@Test
+	void resumesTheSameSweep() throws Exception
+	{
+		File file = new File(directory, "progress.txt");
+		complete(file, "RuleSweep 0 100", new long[] {0, 10});
+		complete(file, "RuleSweep 0 100", new long[] {10, 20});
+		
+		try(SweepJournal journal = new SweepJournal(file, "RuleSweep 0 100"))
+		{
+			assertTrue(journal.isResumed());
+			assertEquals(20, journal.skipCompleted(0));
+		}
+	}
+	
+	@Test
+	void startsOverForAnotherSweep() throws Exception
+	{
+		File file = new File(directory, "progress.txt");
+		complete(file, "RuleSweep 0 100", new long[] {0, 10});
+		
+		try(SweepJournal journal = new SweepJournal(file, "RuleSweep 0 200"))
+		{
+			assertFalse(journal.isResumed());
+			assertEquals(0, journal.skipCompleted(0));
+		}
+		
+		assertEquals(List.of("RuleSweep 0 200"), Files.readAllLines(file.toPath()));
+	}
+	
+	@Test
+	void dropsALineCutShortByACrash() throws Exception
+	{
+		File file = new File(directory, "progress.txt");
+		Files.writeString(file.toPath(), "RuleSweep 0 100\n0 10\n20 3");
+		
+		try(SweepJournal journal = new SweepJournal(file, "RuleSweep 0 100"))
+		{
+			assertTrue(journal.isResumed());
+			assertEquals(10, journal.skipCompleted(0));
+			assertEquals(20, journal.skipCompleted(20));
+		}
+	}
+}
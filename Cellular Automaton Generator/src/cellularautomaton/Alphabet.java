@@ -2,6 +2,7 @@ package cellularautomaton;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
 
@@ -102,6 +103,7 @@ public class Alphabet
 					+ "delete this Cell or rename it from " + toAdd.id + " to something else that has not\n"
 					+ "already been used in your alhpabet.");
 		
+		toAdd.ordinal = setOfCells.size();
 		setOfCells.add(toAdd);
 	}
 	
@@ -118,7 +120,7 @@ public class Alphabet
 	
 	public Set<String> getIDset()
 	{
-		Set<String> idset = idMap.keySet();
+		Set<String> idset = new HashSet<String>(idMap.keySet());
 		idset.remove("NULL");
 		return idset;
 	}
@@ -132,11 +134,44 @@ public class Alphabet
 		return setOfCells;
 	}
 	
+	/**
+	 * Gets the Cell in this Alphabet with the specified ordinal
+	 * 
+	 * @param index the ordinal of the Cell to get
+	 * @return the Cell with the specified ordinal
+	 */
 	public Cell get(int index)
 	{
 		return setOfCells.get(index);
 	}
 	
+	/**
+	 * Gets the RGB value that represents each Cell in this Alphabet, indexed by ordinal
+	 * 
+	 * @return the RGB values of the Cells in this Alphabet
+	 */
+	public int[] getPalette()
+	{
+		int[] palette = new int[setOfCells.size()];
+		
+		for(int i = 0; i < palette.length; i++)
+			palette[i] = setOfCells.get(i).getRGB();
+		
+		return palette;
+	}
+	
+	/**
+	 * Gets the ordinal of the Cell that NULL is associated with
+	 * 
+	 * @return the ordinal of the NULL Cell, or -1 if NULL has not been set
+	 */
+	public int getNULLordinal()
+	{
+		Cell cell = idMap.get("NULL");
+		
+		return cell == null ? -1 : cell.ordinal;
+	}
+	
 	public String toString()
 	{
 		String str = super.toString();
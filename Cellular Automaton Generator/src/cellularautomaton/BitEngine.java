@@ -0,0 +1,284 @@
+package cellularautomaton;
+
+/**
+ * class BitEngine to generate CellularAutomata whose Alphabet has exactly two Cells.
+ * Each Row is stored as a bitset, one bit per Cell holding its ordinal, so 64 Cells
+ * fit in a single long and are generated together.
+ * <br><br>
+ * The rules are compiled into their algebraic normal form, an exclusive or of
+ * products of the Cells in a pattern. Shifting a word left or right lines up
+ * every Cell with one of its neighbors, so evaluating the normal form on shifted
+ * words generates 64 Cells with a handful of bitwise operations.
+ */
+class BitEngine extends Engine
+{
+	/**
+	 * the largest patternSize this Engine generates with, beyond it the
+	 * normal form of a rule can grow larger than looking up each Cell
+	 */
+	private static final int maxPatternSize = 6;
+	
+	private int patternSize;
+	
+	/**
+	 * the word NULL Cells are packed into, all ones or all zeros
+	 */
+	private long NULL;
+	
+	/**
+	 * the bits of the last word of a Row that lie past its end
+	 */
+	private long tailMask;
+	
+	private int numWords;
+	
+	/**
+	 * the current and next Row, with a guard word of NULL Cells on each side
+	 */
+	private long[] current;
+	private long[] next;
+	
+	/**
+	 * the terms of the normal form of the rules, each term is the set of
+	 * pattern positions that are multiplied together, as a bitmask
+	 */
+	private int[] terms;
+	private int numTerms;
+	
+	/**
+	 * the words holding each position of the patterns centered on the Cells of a word,
+	 * indexed by the bit that position has in a term
+	 */
+	private long[] neighbors;
+	
+	/**
+	 * the product of the neighbors in every term, indexed by term
+	 */
+	private long[] products;
+	
+	/**
+	 * the coefficients of the normal form as all ones or all zeros, used to
+	 * generate elementary rules, patternSize 3, without any loops
+	 */
+	private long[] coefficientMasks;
+	
+	/**
+	 * the truth table of the rules, transformed in place into the coefficients of the normal form
+	 */
+	private int[] coefficients;
+	
+	/**
+	 * Returns true if a BitEngine can generate with the specified rules
+	 * 
+	 * @param dictionary the rules to check
+	 * @return if the Alphabet of the rules has two Cells and the patterns are small enough
+	 */
+	public static boolean supports(Dictionary dictionary)
+	{
+		return dictionary.getRadix() == 2 && dictionary.getPatternSize() <= maxPatternSize
+				&& dictionary.getRuleMode() == RuleMode.PATTERN;
+	}
+	
+	/**
+	 * Creates a BitEngine for Rows with the specified number of columns
+	 * 
+	 * @param dictionary the rules to generate with, its Alphabet must have two Cells
+	 * @param numColumns the number of Cells in each Row
+	 */
+	public BitEngine(Dictionary dictionary, int numColumns)
+	{
+		super(dictionary, numColumns);
+		
+		patternSize = dictionary.getPatternSize();
+		
+		int nullOrdinal = dictionary.getAlphabet().getNULLordinal();
+		
+		if(nullOrdinal < 0)
+			throw new IllegalStateException("Error, NULL has not been set in the Alphabet of " + dictionary);
+		
+		NULL = nullOrdinal == 1 ? -1L : 0L;
+		
+		numWords = (numColumns + 63) / 64;
+		
+		int tailBits = numColumns % 64;
+		tailMask = tailBits == 0 ? 0L : -1L << tailBits;
+		
+		current = newBuffer();
+		next = newBuffer();
+		
+		neighbors = new long[patternSize];
+		products = new long[1 << patternSize];
+		
+		coefficients = new int[1 << patternSize];
+		terms = new int[1 << patternSize];
+		coefficientMasks = new long[1 << patternSize];
+		
+		compile();
+	}
+	
+	/**
+	 * Creates a buffer large enough to hold a Row and its guard words, filled with NULL
+	 * 
+	 * @return a new buffer filled with NULL
+	 */
+	private long[] newBuffer()
+	{
+		long[] buffer = new long[numWords + 2];
+		
+		for(int i = 0; i < buffer.length; i++)
+			buffer[i] = NULL;
+		
+		return buffer;
+	}
+	
+	/**
+	 * Computes the algebraic normal form of the rules with a Moebius transform
+	 * of their truth table. Pattern position 0, the leftmost Cell, is the most
+	 * significant bit of a pattern number, so it is bit patternSize - 1 of a term.
+	 * The arrays of the normal form are reused, so compiling allocates nothing.
+	 */
+	private void compile()
+	{
+		int numPatterns = 1 << patternSize;
+		int nullOrdinal = NULL == 0 ? 0 : 1;
+		
+		for(int index = 0; index < numPatterns; index++)
+			coefficients[index] = getOutput(index, nullOrdinal);
+		
+		for(int bit = 1; bit < numPatterns; bit <<= 1)
+			for(int index = 0; index < numPatterns; index++)
+				if((index & bit) != 0)
+					coefficients[index] ^= coefficients[index ^ bit];
+		
+		numTerms = 0;
+		
+		for(int index = 0; index < numPatterns; index++)
+		{
+			coefficientMasks[index] = 0L;
+			
+			if(coefficients[index] != 0)
+			{
+				terms[numTerms] = index;
+				numTerms++;
+				coefficientMasks[index] = -1L;
+			}
+		}
+	}
+	
+	protected void update()
+	{
+		compile();
+	}
+	
+	public void load(Row row)
+	{
+		for(int col = 0; col < numColumns; col++)
+		{
+			Cell cell = row.get(col);
+			
+			boolean set = cell == null ? NULL != 0 : cell.ordinal == 1;
+			long bit = 1L << col;
+			
+			if(set)
+				current[1 + col / 64] |= bit;
+			else
+				current[1 + col / 64] &= ~bit;
+		}
+	}
+	
+	public void step()
+	{
+		if(patternSize == 3)
+			stepElementary();
+		else
+			stepGeneral();
+		
+		//the Cells past the end of the Row are NULL
+		next[numWords] = (next[numWords] & ~tailMask) | (NULL & tailMask);
+		
+		long[] parent = current;
+		current = next;
+		next = parent;
+	}
+	
+	/**
+	 * Generates the next Row for patterns of 3 Cells, the left, center, and right neighbor
+	 */
+	private void stepElementary()
+	{
+		long[] parent = current;
+		long[] child = next;
+		long[] a = coefficientMasks;
+		
+		for(int i = 1; i <= numWords; i++)
+		{
+			long word = parent[i];
+			
+			long l = (word << 1) | (parent[i - 1] >>> 63);
+			long c = word;
+			long r = (word >>> 1) | (parent[i + 1] << 63);
+			
+			long cr = c & r;
+			
+			child[i] = a[0] ^ (r & a[1]) ^ (c & a[2]) ^ (cr & a[3])
+					^ (l & (a[4] ^ (r & a[5]) ^ (c & a[6]) ^ (cr & a[7])));
+		}
+	}
+	
+	/**
+	 * Generates the next Row for patterns of any size
+	 */
+	private void stepGeneral()
+	{
+		long[] parent = current;
+		long[] child = next;
+		
+		int leftPadding = patternSize / 2;
+		int numProducts = products.length;
+		
+		products[0] = -1L;
+		
+		for(int i = 1; i <= numWords; i++)
+		{
+			long previous = parent[i - 1];
+			long word = parent[i];
+			long following = parent[i + 1];
+			
+			//lines up bit b of neighbors[patternSize - 1 - j] with the Cell at offset j - leftPadding from Cell b of this word
+			for(int j = 0; j < patternSize; j++)
+			{
+				int offset = j - leftPadding;
+				long neighbor = word;
+				
+				if(offset > 0)
+					neighbor = (word >>> offset) | (following << (64 - offset));
+				else if(offset < 0)
+					neighbor = (word << -offset) | (previous >>> (64 + offset));
+				
+				neighbors[patternSize - 1 - j] = neighbor;
+			}
+			
+			//each product extends the product of the term without its lowest bit
+			for(int term = 1; term < numProducts; term++)
+				products[term] = products[term & (term - 1)] & neighbors[Integer.numberOfTrailingZeros(term)];
+			
+			long output = 0L;
+			
+			for(int t = 0; t < numTerms; t++)
+				output ^= products[terms[t]];
+			
+			child[i] = output;
+		}
+	}
+	
+	public void store(CellGrid grid, int row)
+	{
+		grid.setRow(row, current, 1);
+	}
+	
+	public void store(int[] ordinals)
+	{
+		for(int col = 0; col < numColumns; col++)
+			ordinals[col] = (int) (current[1 + col / 64] >>> col) & 1;
+	}
+}
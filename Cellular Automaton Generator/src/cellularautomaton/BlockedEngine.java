@@ -0,0 +1,223 @@
+package cellularautomaton;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * class BlockedEngine to generate CellularAutomata with Rows too wide to stay in
+ * the cache of a core. Rather than streaming the whole Row through memory once per
+ * generation, the Row is split into tiles of columns small enough to stay in cache,
+ * and several generations of a tile are generated before moving on to the next tile.
+ * <br><br>
+ * Every generation a Cell depends on Cells up to patternSize / 2 columns away, so to
+ * generate depth generations of a tile, a trapezoid of the Row that is wider by
+ * depth * patternSize / 2 columns on each side is copied and shrunk by patternSize / 2
+ * columns on each side every generation. The tiles are independent of each other and
+ * are generated in parallel, and the generated Rows are identical to a Generator's.
+ */
+class BlockedEngine extends Generator
+{
+	/**
+	 * the narrowest Row that is generated in blocks of generations
+	 */
+	private static final int minColumns = 1 << 16;
+	
+	/**
+	 * the number of Cells in each tile, small enough for a tile and its
+	 * trapezoid to stay in the cache of a core
+	 */
+	private static final int tileColumns = 1 << 12;
+	
+	/**
+	 * the number of generations generated for a tile at a time
+	 */
+	private static final int depth = 8;
+	
+	/**
+	 * the number of Cells to the left and right of the center of a pattern
+	 */
+	private int leftRadius;
+	private int rightRadius;
+	
+	private int numTiles;
+	private boolean parallel;
+	
+	/**
+	 * the Rows of the current block of generations, generated[t - 1] holds
+	 * generation t of the block, and current is pointed at the Row being read
+	 */
+	private int[][] generated;
+	
+	/**
+	 * the Row the current block is generated from, which must not be one of generated
+	 */
+	private int[] source;
+	
+	/**
+	 * the generation of the current block that is the current Row, from 0 to depth
+	 */
+	private int position;
+	
+	/**
+	 * the number of generations of the current block that have been generated
+	 */
+	private int available;
+	
+	/**
+	 * the two buffers each tile generates its trapezoid in
+	 */
+	private int[][] tileBuffers;
+	private int[][] tileNextBuffers;
+	
+	/**
+	 * Checks if Rows with the specified number of columns are worth generating in blocks of
+	 * generations. A single core generating a Row is limited by looking up the rules rather
+	 * than by memory, so Rows are only blocked when several cores share the bandwidth
+	 * 
+	 * @param numColumns the number of Cells in each Row
+	 * @return true if Rows this wide are generated faster by a BlockedEngine
+	 */
+	public static boolean supports(int numColumns)
+	{
+		return numColumns >= minColumns && ForkJoinPool.getCommonPoolParallelism() > 1;
+	}
+	
+	/**
+	 * Creates a BlockedEngine for Rows with the specified number of columns
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param numColumns the number of Cells in each Row
+	 */
+	public BlockedEngine(Dictionary dictionary, int numColumns)
+	{
+		super(dictionary, numColumns);
+		
+		leftRadius = leftPadding;
+		rightRadius = patternSize - 1 - leftPadding;
+		
+		numTiles = (numColumns + tileColumns - 1) / tileColumns;
+		parallel = numTiles > 1 && ForkJoinPool.getCommonPoolParallelism() > 1;
+		
+		generated = new int[depth][];
+		for(int t = 0; t < depth; t++)
+			generated[t] = newBuffer();
+		
+		tileBuffers = new int[numTiles][];
+		tileNextBuffers = new int[numTiles][];
+		
+		for(int tile = 0; tile < numTiles; tile++)
+		{
+			int length = getTileStart(tile + 1) - getTileStart(tile) + (depth + 1) * (patternSize - 1);
+			tileBuffers[tile] = newTileBuffer(length);
+			tileNextBuffers[tile] = newTileBuffer(length);
+		}
+		
+		source = newBuffer();
+		
+		position = 0;
+		available = 0;
+	}
+	
+	/**
+	 * Creates a tile buffer filled with NULL. The Cells of a tile buffer that are outside
+	 * of the Row are never written, so they only have to be filled with NULL once
+	 * 
+	 * @param length the length of the tile buffer
+	 * @return a new tile buffer filled with NULL
+	 */
+	private int[] newTileBuffer(int length)
+	{
+		int[] buffer = new int[length];
+		
+		for(int i = 0; i < length; i++)
+			buffer[i] = NULL;
+		
+		return buffer;
+	}
+	
+	/**
+	 * Gets the first column of the specified tile
+	 * 
+	 * @param tile the index of the tile
+	 * @return the first column of the tile, or numColumns for the tile past the last one
+	 */
+	private int getTileStart(int tile)
+	{
+		return Math.min(numColumns, tile * tileColumns);
+	}
+	
+	public void load(Row row)
+	{
+		super.load(row);
+		
+		position = 0;
+		available = 0;
+	}
+	
+	public void step()
+	{
+		if(position < available)
+		{
+			current = generated[position++];
+			return;
+		}
+		
+		//the Row the block is generated from must survive the whole block, so
+		//if it is one of the Rows of the last block it is traded for source
+		for(int t = 0; t < depth; t++)
+		{
+			if(generated[t] == current)
+				generated[t] = source;
+		}
+		source = current;
+		
+		//generates the next block of generations from the current Row
+		if(parallel)
+			IntStream.range(0, numTiles).parallel().forEach(tile -> generateTile(tile));
+		else
+			for(int tile = 0; tile < numTiles; tile++)
+				generateTile(tile);
+		
+		current = generated[0];
+		
+		available = depth;
+		position = 1;
+	}
+	
+	/**
+	 * Generates depth generations of the specified tile from source into generated
+	 * 
+	 * @param tile the index of the tile to generate
+	 */
+	private void generateTile(int tile)
+	{
+		int from = getTileStart(tile);
+		int to = getTileStart(tile + 1);
+		
+		//the first column of the trapezoid at its widest, column col is at
+		//index col - lo + leftPadding of the tile buffers
+		int lo = from - depth * leftRadius;
+		
+		int[] parent = tileBuffers[tile];
+		int[] child = tileNextBuffers[tile];
+		
+		//copies the part of the trapezoid at its widest that is inside of the Row from the source Row
+		int first = Math.max(0, lo);
+		int last = Math.min(numColumns, to + depth * rightRadius);
+		System.arraycopy(source, first + leftPadding, parent, first - lo + leftPadding, last - first);
+		
+		for(int t = 1; t <= depth; t++)
+		{
+			int start = Math.max(0, from - (depth - t) * leftRadius);
+			int end = Math.min(numColumns, to + (depth - t) * rightRadius);
+			
+			step(parent, child, start - lo, end - lo);
+			
+			System.arraycopy(child, from - lo + leftPadding, generated[t - 1], from + leftPadding, to - from);
+			
+			int[] swap = parent;
+			parent = child;
+			child = swap;
+		}
+	}
+}
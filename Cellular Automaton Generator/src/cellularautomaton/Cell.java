@@ -14,6 +14,12 @@ public class Cell implements Comparable<Cell>
 	public int rgbValue;
 	public String id;
 	
+	/**
+	 * the dense index of this Cell within the Alphabet it was added to,
+	 * assigned by the Alphabet in the order Cells are added
+	 */
+	int ordinal;
+	
 	private Color color;
 	
 	/**
@@ -26,9 +32,22 @@ public class Cell implements Comparable<Cell>
 		this.rgbValue = rgbValue;
 		this.id = id;
 		
+		ordinal = -1;
 		color = new Color(rgbValue);
 	}
 	
+	/**
+	 * Gets the dense index of this Cell within its Alphabet, which is the
+	 * digit this Cell contributes to the pattern numbers used by a Dictionary
+	 * 
+	 * @return the index of this Cell within its Alphabet, or -1 if it has not
+	 * been added to an Alphabet
+	 */
+	public int getOrdinal()
+	{
+		return ordinal;
+	}
+	
 	/**
 	 * Gets the RGB value that the Image Generator will use to represent this Cell
 	 * @return the RGB value that the Image Generator will use to represent this Cell
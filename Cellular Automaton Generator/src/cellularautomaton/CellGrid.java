@@ -0,0 +1,541 @@
+package cellularautomaton;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * class CellGrid to store the Cells of a CellularAutomaton compactly. Rather than
+ * keeping a reference to a Cell for every position, a CellGrid keeps the ordinal
+ * of each Cell in a single row-major array, using one bit per Cell when the
+ * Alphabet has two Cells, one byte per Cell when it has at most 256 Cells, and
+ * two bytes per Cell otherwise. Rows are handed out as views on top of this storage.
+ */
+public class CellGrid
+{
+	/**
+	 * the largest number of Cells that can be stored in a single array
+	 */
+	private static final long maxSize = Integer.MAX_VALUE - 8;
+	
+	/**
+	 * reads 8 bytes of a byte array as a long at once, for hashing
+	 */
+	private static final VarHandle longView = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	private Alphabet alphabet;
+	
+	private int numRows;
+	private int numColumns;
+	
+	/**
+	 * the ordinals of the Cells in this CellGrid, only one of these is used
+	 * depending on the number of Cells in the Alphabet
+	 */
+	private long[] bits;
+	private byte[] bytes;
+	private short[] shorts;
+	
+	/**
+	 * the number of words each row takes up in bits
+	 */
+	private int wordsPerRow;
+	
+	/**
+	 * Creates an empty CellGrid with the specified dimensions
+	 * 
+	 * @param alphabet the Alphabet the stored ordinals belong to
+	 * @param numRows the number of Rows in this CellGrid
+	 * @param numColumns the number of Cells in each Row
+	 */
+	public CellGrid(Alphabet alphabet, int numRows, int numColumns)
+	{
+		this.alphabet = alphabet;
+		this.numRows = numRows;
+		this.numColumns = numColumns;
+		
+		wordsPerRow = (numColumns + 63) / 64;
+		
+		//the number of array elements needed to store every Cell
+		long size = (long) numRows * (alphabet.numCells() <= 2 ? wordsPerRow : numColumns);
+		
+		if(size > maxSize)
+			throw new IllegalArgumentException("Error, a CellularAutomaton with " + numRows + " Rows of " + numColumns
+					+ " Cells is too large to store, lower numRows or shorten your starting row");
+		
+		if(alphabet.numCells() <= 2)
+			bits = new long[(int) size];
+		else if(alphabet.numCells() <= 256)
+			bytes = new byte[(int) size];
+		else if(alphabet.numCells() <= 65536)
+			shorts = new short[(int) size];
+		else
+			throw new IllegalArgumentException("Error, an alphabet may not contain more than 65536 Cells");
+	}
+	
+	public int getNumRows()
+	{
+		return numRows;
+	}
+	
+	public int getNumColumns()
+	{
+		return numColumns;
+	}
+	
+	public Alphabet getAlphabet()
+	{
+		return alphabet;
+	}
+	
+	/**
+	 * Gets the ordinal of the Cell at the specified row and column
+	 * 
+	 * @param row the row index of the Cell
+	 * @param col the column index of the Cell
+	 * @return the ordinal of the Cell at the specified row and column
+	 */
+	public int getOrdinal(int row, int col)
+	{
+		if(bits != null)
+			return (int) (bits[row * wordsPerRow + col / 64] >>> col) & 1;
+		
+		int i = row * numColumns + col;
+		
+		return bytes != null ? bytes[i] & 0xFF : shorts[i] & 0xFFFF;
+	}
+	
+	/**
+	 * Gets the Cell at the specified row and column
+	 * 
+	 * @param row the row index of the Cell
+	 * @param col the column index of the Cell
+	 * @return the Cell at the specified row and column
+	 */
+	public Cell get(int row, int col)
+	{
+		return alphabet.get(getOrdinal(row, col));
+	}
+	
+	/**
+	 * Copies the ordinals of every Cell in the specified row into an array
+	 * 
+	 * @param row the row index to copy
+	 * @param ordinals the array to copy the ordinals into, at least numColumns long
+	 */
+	public void getOrdinals(int row, int[] ordinals)
+	{
+		int start = row * numColumns;
+		
+		if(bits != null)
+		{
+			int first = row * wordsPerRow;
+			
+			for(int col = 0; col < numColumns; col++)
+				ordinals[col] = (int) (bits[first + col / 64] >>> col) & 1;
+		}
+		else if(bytes != null)
+			for(int col = 0; col < numColumns; col++)
+				ordinals[col] = bytes[start + col] & 0xFF;
+		else
+			for(int col = 0; col < numColumns; col++)
+				ordinals[col] = shorts[start + col] & 0xFFFF;
+	}
+	
+	/**
+	 * Sets the Cell at the specified row and column to the Cell with the specified ordinal
+	 * 
+	 * @param row the row index of the Cell
+	 * @param col the column index of the Cell
+	 * @param ordinal the ordinal of the Cell to store
+	 */
+	public void set(int row, int col, int ordinal)
+	{
+		if(bits != null)
+		{
+			long bit = 1L << col;
+			int word = row * wordsPerRow + col / 64;
+			
+			bits[word] = ordinal == 0 ? bits[word] & ~bit : bits[word] | bit;
+			return;
+		}
+		
+		int i = row * numColumns + col;
+		
+		if(bytes != null)
+			bytes[i] = (byte) ordinal;
+		else
+			shorts[i] = (short) ordinal;
+	}
+	
+	/**
+	 * Sets every Cell of the specified row from an array of ordinals
+	 * 
+	 * @param row the row index to set
+	 * @param ordinals the array holding the ordinals of the row
+	 * @param offset the index in ordinals of the ordinal for column 0
+	 */
+	public void setRow(int row, int[] ordinals, int offset)
+	{
+		int start = row * numColumns;
+		
+		if(bits != null)
+			for(int base = 0; base < numColumns; base += 64)
+			{
+				long word = 0L;
+				int end = Math.min(64, numColumns - base);
+				
+				for(int b = 0; b < end; b++)
+					word |= (long) ordinals[offset + base + b] << b;
+				
+				bits[row * wordsPerRow + base / 64] = word;
+			}
+		else if(bytes != null)
+			for(int col = 0; col < numColumns; col++)
+				bytes[start + col] = (byte) ordinals[offset + col];
+		else
+			for(int col = 0; col < numColumns; col++)
+				shorts[start + col] = (short) ordinals[offset + col];
+	}
+	
+	/**
+	 * Sets every Cell of the specified row from a bitset of ordinals, for Alphabets of two Cells
+	 * 
+	 * @param row the row index to set
+	 * @param words the bitset holding the ordinals of the row, bit b of a word for column 64 * word + b
+	 * @param firstWord the index in bits of the word holding column 0
+	 */
+	void setRow(int row, long[] words, int firstWord)
+	{
+		if(bits != null)
+		{
+			System.arraycopy(words, firstWord, bits, row * wordsPerRow, wordsPerRow);
+			return;
+		}
+		
+		int start = row * numColumns;
+		
+		for(int base = 0; base < numColumns; base += 64)
+		{
+			long word = words[firstWord + base / 64];
+			int end = Math.min(64, numColumns - base);
+			
+			if(bytes != null)
+				for(int b = 0; b < end; b++)
+					bytes[start + base + b] = (byte) ((word >>> b) & 1);
+			else
+				for(int b = 0; b < end; b++)
+					shorts[start + base + b] = (short) ((word >>> b) & 1);
+		}
+	}
+	
+	/**
+	 * Sets 64 Cells of the specified row from a word of ordinals, for Alphabets of two Cells
+	 * 
+	 * @param row the row index to set
+	 * @param i the index of the word in the row, the word holds columns 64 * i to 64 * i + 63
+	 * @param word the ordinals of the Cells, bit b for column 64 * i + b, bits past the last column are ignored
+	 */
+	void setWord(int row, int i, long word)
+	{
+		if(bits != null)
+		{
+			bits[row * wordsPerRow + i] = word;
+			return;
+		}
+		
+		int base = i * 64;
+		int start = row * numColumns + base;
+		int end = Math.min(64, numColumns - base);
+		
+		if(bytes != null)
+			for(int b = 0; b < end; b++)
+				bytes[start + b] = (byte) ((word >>> b) & 1);
+		else
+			for(int b = 0; b < end; b++)
+				shorts[start + b] = (short) ((word >>> b) & 1);
+	}
+	
+	/**
+	 * Gets a 128 bit hash of the ordinals of every Cell in this CellGrid, written as 32
+	 * hexadecimal digits. The colors of the Alphabet are part of the fingerprint, so the
+	 * same ordinals in other colors have another fingerprint. Two CellGrids with the same
+	 * shape, colors, and Cells have the same fingerprint, and two that differ are very
+	 * unlikely to, but the hash is not a cryptographic hash, so CellGrids built to collide
+	 * can have the same fingerprint.
+	 * 
+	 * @return the fingerprint of the colors and Cells of this CellGrid
+	 */
+	public String getFingerprint()
+	{
+		long h1 = numRows;
+		long h2 = numColumns;
+		
+		int[] palette = alphabet.getPalette();
+		
+		h1 = mix(h1, palette.length, 0x87C37B91114253D5L);
+		h2 = mix(h2, palette.length, 0x4CF5AD432745937FL);
+		
+		for(int rgb : palette)
+		{
+			h1 = mix(h1, rgb, 0x87C37B91114253D5L);
+			h2 = mix(h2, rgb, 0x4CF5AD432745937FL);
+		}
+		
+		if(bits != null)
+		{
+			for(int row = 0; row < numRows; row++)
+			{
+				for(int i = 0; i < wordsPerRow; i++)
+				{
+					long word = getWord(row, i);
+					
+					h1 = mix(h1, word, 0x87C37B91114253D5L);
+					h2 = mix(h2, word, 0x4CF5AD432745937FL);
+				}
+			}
+		}
+		else
+		{
+			int length = bytes != null ? bytes.length : shorts.length;
+			
+			h1 = mix(h1, 0, length, 0x87C37B91114253D5L);
+			h2 = mix(h2, 0, length, 0x4CF5AD432745937FL);
+		}
+		
+		h1 = finish(h1);
+		h2 = finish(h2 ^ h1);
+		
+		return String.format("%016x%016x", h1, h2);
+	}
+	
+	/**
+	 * Gets a word of a row of bits, with the bits past the last column, which are
+	 * left over from generating, cleared
+	 * 
+	 * @param row the row index
+	 * @param i the index of the word in the row
+	 * @return the word of the row
+	 */
+	private long getWord(int row, int i)
+	{
+		long word = bits[row * wordsPerRow + i];
+		
+		int tailBits = numColumns % 64;
+		if(i == wordsPerRow - 1 && tailBits != 0)
+			word &= (1L << tailBits) - 1;
+		
+		return word;
+	}
+	
+	/**
+	 * Gets a 64 bit hash of the ordinals of the Cells in the specified row
+	 * 
+	 * @param row the row index to hash
+	 * @return the hash of the row
+	 */
+	public long getRowHash(int row)
+	{
+		long hash = numColumns;
+		
+		if(bits != null)
+			for(int i = 0; i < wordsPerRow; i++)
+				hash = mix(hash, getWord(row, i), 0x87C37B91114253D5L);
+		else
+			hash = mix(hash, row * numColumns, (row + 1) * numColumns, 0x87C37B91114253D5L);
+		
+		return finish(hash);
+	}
+	
+	/**
+	 * Returns true if two rows have the same Cells
+	 * 
+	 * @param a the row index of the first row
+	 * @param b the row index of the second row
+	 * @return if every Cell of row a is the same as the Cell in the same column of row b
+	 */
+	public boolean rowEquals(int a, int b)
+	{
+		if(bits != null)
+		{
+			for(int i = 0; i < wordsPerRow; i++)
+				if(getWord(a, i) != getWord(b, i))
+					return false;
+			
+			return true;
+		}
+		
+		int from = a * numColumns;
+		int to = b * numColumns;
+		
+		if(bytes != null)
+			return Arrays.equals(bytes, from, from + numColumns, bytes, to, to + numColumns);
+		
+		return Arrays.equals(shorts, from, from + numColumns, shorts, to, to + numColumns);
+	}
+	
+	/**
+	 * Copies the Cells of one row to another row
+	 * 
+	 * @param from the row index to copy from
+	 * @param to the row index to copy to
+	 */
+	public void copyRow(int from, int to)
+	{
+		if(bits != null)
+			System.arraycopy(bits, from * wordsPerRow, bits, to * wordsPerRow, wordsPerRow);
+		else if(bytes != null)
+			System.arraycopy(bytes, from * numColumns, bytes, to * numColumns, numColumns);
+		else
+			System.arraycopy(shorts, from * numColumns, shorts, to * numColumns, numColumns);
+	}
+	
+	/**
+	 * Mixes a range of the ordinals stored in bytes or shorts into a hash, packing them into words
+	 * 8 bytes or 4 shorts at a time
+	 * 
+	 * @param hash the hash to mix the ordinals into
+	 * @param from the first index of the range, inclusive
+	 * @param to the last index of the range, exclusive
+	 * @param multiplier the constant the words are mixed in with
+	 * @return the hash with the ordinals mixed in
+	 */
+	private long mix(long hash, int from, int to, long multiplier)
+	{
+		int perWord = bytes != null ? 8 : 4;
+		int width = 64 / perWord;
+		
+		int i = from;
+		if(bytes != null)
+			for(; i + 8 <= to; i += 8)
+				hash = mix(hash, (long) longView.get(bytes, i), multiplier);
+		else
+			for(; i + 4 <= to; i += 4)
+				hash = mix(hash, (shorts[i] & 0xFFFFL) | (shorts[i + 1] & 0xFFFFL) << 16
+						| (shorts[i + 2] & 0xFFFFL) << 32 | (shorts[i + 3] & 0xFFFFL) << 48, multiplier);
+		
+		//the ordinals left over at the end are packed into the last word
+		if(i < to)
+		{
+			long word = 0;
+			
+			for(int j = i; j < to; j++)
+				word |= (long) (bytes != null ? bytes[j] & 0xFF : shorts[j] & 0xFFFF) << (j - i) * width;
+			
+			hash = mix(hash, word, multiplier);
+		}
+		
+		return hash;
+	}
+	
+	/**
+	 * Mixes a word into a hash
+	 */
+	static long mix(long hash, long word, long multiplier)
+	{
+		word *= multiplier;
+		word = Long.rotateLeft(word, 31);
+		word *= 0x9E3779B97F4A7C15L;
+		
+		return Long.rotateLeft(hash ^ word, 27) * 5 + 0x52DCE729;
+	}
+	
+	/**
+	 * Spreads every bit of a hash over all of its bits
+	 */
+	static long finish(long hash)
+	{
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		
+		return hash;
+	}
+	
+	/**
+	 * Writes the RGB value of every Cell in the specified rows into a row-major array of pixels
+	 * 
+	 * @param pixels the pixels of an image with the same dimensions as this CellGrid
+	 * @param palette the RGB value of each Cell, indexed by ordinal
+	 * @param fromRow the first row to write, inclusive
+	 * @param toRow the last row to write, exclusive
+	 */
+	public void toRGB(int[] pixels, int[] palette, int fromRow, int toRow)
+	{
+		for(int row = fromRow; row < toRow; row++)
+		{
+			int start = row * numColumns;
+			
+			if(bits != null)
+			{
+				int first = row * wordsPerRow;
+				
+				for(int col = 0; col < numColumns; col++)
+					pixels[start + col] = palette[(int) (bits[first + col / 64] >>> col) & 1];
+			}
+			else if(bytes != null)
+				for(int col = 0; col < numColumns; col++)
+					pixels[start + col] = palette[bytes[start + col] & 0xFF];
+			else
+				for(int col = 0; col < numColumns; col++)
+					pixels[start + col] = palette[shorts[start + col] & 0xFFFF];
+		}
+	}
+	
+	/**
+	 * Gets a Row that reads and writes the Cells of the specified row of this CellGrid
+	 * 
+	 * @param row the row index to get a view of
+	 * @param patternSize the patternSize to give the Row
+	 * @return a Row backed by this CellGrid
+	 */
+	public Row getRow(int row, int patternSize)
+	{
+		return new GridRow(row, patternSize);
+	}
+	
+	/**
+	 * class GridRow, a Row whose Cells are stored in a CellGrid
+	 */
+	private class GridRow extends Row
+	{
+		private int rowIndex;
+		
+		public GridRow(int rowIndex, int patternSize)
+		{
+			super(null, patternSize);
+			this.rowIndex = rowIndex;
+		}
+		
+		public int size()
+		{
+			return numColumns;
+		}
+		
+		public Cell get(int index)
+		{
+			Cell tmp = null;
+			
+			if(0 <= index && index < numColumns)
+				tmp = CellGrid.this.get(rowIndex, index);
+			
+			return tmp;
+		}
+		
+		public Cell set(int index, Cell cell)
+		{
+			Cell temp = null;
+			
+			if(0 <= index && index < numColumns)
+			{
+				temp = CellGrid.this.get(rowIndex, index);
+				CellGrid.this.set(rowIndex, index, cell.ordinal);
+			}
+			
+			return temp;
+		}
+	}
+}
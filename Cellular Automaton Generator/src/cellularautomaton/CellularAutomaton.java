@@ -1,27 +1,62 @@
 package cellularautomaton;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.stream.IntStream;
 
 /**
  * class CellularAutomaton to model and represent a Cellular Automaton,
  * needs a starting Row, a number of Rows, and a Dictionary that defines
  * the rules of how the other Rows will be generated based off the previous row,
- * given this information will fill out an Array based data structure containing
- * rows of Cells, which can then be turned into a ".png" image depending on the
+ * given this information will fill out a CellGrid containing rows of Cells,
+ * which can then be turned into a ".png" image depending on the
  * rgbValues of the Cells contained within this CellularAutomaton
  * 
  * @author Jacob Cohen
  */
 public class CellularAutomaton implements Iterable<Row>
 {
-	private Row rows[];
+	private CellGrid grid;
 	
 	private int numRows;
 	private int numColumns;
+	private int patternSize;
 	
 	private boolean isGenerated;
 	
+	/**
+	 * the number of generations between consecutive Rows, 1 keeps every generation
+	 */
+	private long rowStride = 1;
+	
+	/**
+	 * the number of CellularAutomata generated at once, which share the heap for the nodes of a HashLifeEngine
+	 */
+	private int numThreads = 1;
+	
+	/**
+	 * finds the first Row that repeats an earlier Row, kept to be reused by the next generation
+	 */
+	private CycleFinder cycleFinder;
+	
+	/**
+	 * the Engine of the last generation, reused when the next generation has the same Dictionary
+	 */
+	private Engine engine;
+	
+	/**
+	 * the latest Rows kept while streaming, reused when the next generation has as many columns
+	 */
+	private int[][] latest;
+	
+	/**
+	 * the most Cells kept from the latest Rows when streaming, to copy a cycle from
+	 */
+	private static final int maxStreamedCycleCells = 1 << 22;
+	
 	/**
 	 * constructs a new CellularAutonoma with specified starting row, row count, and rules to generate with
 	 * 
@@ -31,28 +66,201 @@ public class CellularAutomaton implements Iterable<Row>
 	 */
 	public CellularAutomaton(int numRows)
 	{
-		rows = new Row[numRows];
 		this.numRows = numRows;
 		
 		isGenerated = false;
 	}
 	
+	/**
+	 * Sets the number of generations between consecutive Rows of this CellularAutomaton,
+	 * so row i is generation i * rowStride of the starting Row. A large stride is jumped
+	 * with a HashLifeEngine instead of generating every generation in between.
+	 * 
+	 * @param rowStride the number of generations between Rows, at least 1
+	 */
+	public void setRowStride(long rowStride)
+	{
+		if(rowStride < 1)
+			throw new IllegalArgumentException("Error, the row stride has to be at least 1, got " + rowStride);
+		
+		this.rowStride = rowStride;
+	}
+	
+	/**
+	 * Sets the number of CellularAutomata generated at the same time, so a HashLifeEngine
+	 * only keeps as many nodes as fit in its share of the heap
+	 * 
+	 * @param numThreads the number of threads generating CellularAutomata at once, at least 1
+	 */
+	public void setNumThreads(int numThreads)
+	{
+		if(numThreads < 1)
+			throw new IllegalArgumentException("Error, the number of threads has to be at least 1, got " + numThreads);
+		
+		this.numThreads = numThreads;
+	}
+	
+	/**
+	 * Gets the number of generations between consecutive Rows of this CellularAutomaton
+	 * 
+	 * @return the row stride
+	 */
+	public long getRowStride()
+	{
+		return rowStride;
+	}
+	
 	/**
 	 * Generates and sets all of the Rows and Cells within this
-	 * CellularAutomaton based on the provided startingRow
+	 * CellularAutomaton based on the provided startingRow. Once a Row repeats an
+	 * earlier Row, the rest of the Rows are copied from the cycle between them
 	 */
 	public void generate(Row startingRow, Dictionary dictionary)
 	{
-		rows[0] = startingRow;
+		prepare(dictionary, startingRow.size());
+		
+		CycleFinder cycleFinder = getCycleFinder();
 		
-		this.numColumns = startingRow.size();
+		reuseEngine(dictionary, startingRow.size());
+		engine.load(startingRow);
 		
-		for(int i = 1; i < rows.length; i++)
-			rows[i] = Row.generate(rows[i - 1], dictionary);
+		for(int i = 0; i < numRows; i++)
+		{
+			if(i > 0)
+				engine.advance(rowStride);
+			engine.store(grid, i);
+			
+			int row = i;
+			int earlier = cycleFinder.add(row, grid.getRowHash(row), candidate -> grid.rowEquals(candidate, row));
+			
+			if(earlier >= 0)
+			{
+				int period = row - earlier;
+				
+				for(int j = row + 1; j < numRows; j++)
+					grid.copyRow(j - period, j);
+				
+				break;
+			}
+		}
 		
 		isGenerated = true;
 	}
 	
+	/**
+	 * Gets the CellGrid to generate the Rows of this CellularAutomaton into, reusing the
+	 * storage of a previous generation when it has the same shape
+	 * 
+	 * @param dictionary the rules the Rows are generated with
+	 * @param numColumns the number of Cells in each Row
+	 * @return the CellGrid of this CellularAutomaton, ungenerated until setGenerated is called
+	 */
+	CellGrid prepare(Dictionary dictionary, int numColumns)
+	{
+		this.numColumns = numColumns;
+		this.patternSize = dictionary.getPatternSize();
+		
+		if(grid == null || grid.getNumColumns() != numColumns || grid.getAlphabet() != dictionary.getAlphabet())
+			grid = new CellGrid(dictionary.getAlphabet(), numRows, numColumns);
+		
+		isGenerated = false;
+		
+		return grid;
+	}
+	
+	/**
+	 * Marks the Rows of this CellularAutomaton as generated, once they have been filled in from outside
+	 */
+	void setGenerated()
+	{
+		isGenerated = true;
+	}
+	
+	/**
+	 * Generates all of the Rows of this CellularAutomaton based on the provided
+	 * startingRow and sends each one to the specified RowSink as soon as it is
+	 * generated. The Rows are not kept, so only a few Rows are ever held in memory
+	 * no matter how many Rows there are, and this CellularAutomaton is left ungenerated.
+	 * The latest Rows are kept while they fit in a few megabytes, so once a Row repeats
+	 * one of them, the rest of the Rows are sent from the cycle instead of being generated.
+	 * 
+	 * @param startingRow the first Row
+	 * @param dictionary contains the information on how to generate the other Rows
+	 * @param sink receives each Row in order
+	 * @throws IOException if the RowSink fails to write a Row
+	 */
+	public void generate(Row startingRow, Dictionary dictionary, RowSink sink) throws IOException
+	{
+		int numColumns = startingRow.size();
+		
+		//the latest Rows, row i is kept in latest[i % latest.length]
+		int numLatest = Math.max(1, Math.min(numRows, maxStreamedCycleCells / Math.max(1, numColumns)));
+		
+		if(latest == null || latest.length != numLatest || latest[0].length != numColumns)
+			latest = new int[numLatest][numColumns];
+		
+		int[][] latest = this.latest;
+		
+		CycleFinder cycleFinder = getCycleFinder();
+		
+		reuseEngine(dictionary, startingRow.size());
+		engine.load(startingRow);
+		
+		for(int i = 0; i < numRows; i++)
+		{
+			int[] ordinals = latest[i % latest.length];
+			
+			if(i > 0)
+				engine.advance(rowStride);
+			engine.store(ordinals);
+			sink.write(ordinals);
+			
+			//only Rows that are still kept can be compared with
+			int row = i;
+			int earlier = cycleFinder.add(row, CycleFinder.hash(ordinals, numColumns), candidate ->
+					row - candidate < latest.length && Arrays.equals(latest[candidate % latest.length], ordinals));
+			
+			if(earlier >= 0)
+			{
+				int period = row - earlier;
+				
+				for(int j = row + 1; j < numRows; j++)
+					sink.write(latest[(earlier + (j - earlier) % period) % latest.length]);
+				
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Gets a CycleFinder for the Rows of this CellularAutomaton, reusing the one from the last generation
+	 * 
+	 * @return an empty CycleFinder
+	 */
+	CycleFinder getCycleFinder()
+	{
+		if(cycleFinder == null || cycleFinder.getNumRows() != Math.min(numRows, CycleFinder.maxRows))
+			cycleFinder = new CycleFinder(numRows);
+		else
+			cycleFinder.clear();
+		
+		return cycleFinder;
+	}
+	
+	/**
+	 * Brings the Engine of the last generation up to date with the specified rules, or replaces it
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param numColumns the number of Cells in each Row
+	 */
+	private void reuseEngine(Dictionary dictionary, int numColumns)
+	{
+		engine = Engine.reuse(engine, dictionary, numColumns, rowStride);
+		
+		if(engine instanceof HashLifeEngine)
+			((HashLifeEngine) engine).setNumThreads(numThreads);
+	}
+	
 	/**
 	 * Returns true if the specified index is a valid Row index of this CellularAutomaton
 	 * 
@@ -61,7 +269,7 @@ public class CellularAutomaton implements Iterable<Row>
 	 */
 	private boolean insideBounds(int index)
 	{
-		return 0 <= index && index < rows.length;
+		return 0 <= index && index < numRows;
 	}
 	
 	/**
@@ -76,8 +284,8 @@ public class CellularAutomaton implements Iterable<Row>
 	{
 		Row row = null;
 		
-		if(insideBounds(index))
-			row = rows[index];
+		if(insideBounds(index) && grid != null)
+			row = grid.getRow(index, patternSize);
 		
 		return row;
 	}
@@ -95,10 +303,9 @@ public class CellularAutomaton implements Iterable<Row>
 	public Cell get(int rowIndex, int colIndex)
 	{
 		Cell cell = null;
-		Row row = getRow(rowIndex);
 		
-		if(row != null)
-			cell = row.get(colIndex);
+		if(insideBounds(rowIndex) && grid != null && 0 <= colIndex && colIndex < numColumns)
+			cell = grid.get(rowIndex, colIndex);
 		
 		return cell;
 	}
@@ -120,13 +327,13 @@ public class CellularAutomaton implements Iterable<Row>
 		
 		public boolean hasNext()
 		{
-			return currentIndex < numRows;
+			return currentIndex + 1 < numRows;
 		}
-
+		
 		public Row next()
 		{
 			currentIndex++;
-			return rows[currentIndex];
+			return getRow(currentIndex);
 		}	
 	}
 	
@@ -135,6 +342,16 @@ public class CellularAutomaton implements Iterable<Row>
 		return new RowIterator();
 	}
 	
+	/**
+	 * Gets the CellGrid storing the Cells of this CellularAutomaton
+	 * 
+	 * @return the CellGrid of this CellularAutomaton, or null if it has not been generated yet
+	 */
+	public CellGrid getGrid()
+	{
+		return grid;
+	}
+	
 	public boolean isGenerated()
 	{
 		return isGenerated;
@@ -155,9 +372,14 @@ public class CellularAutomaton implements Iterable<Row>
 		
 		BufferedImage image = new BufferedImage(numColumns, numRows, BufferedImage.TYPE_INT_ARGB);
 		
-		for(int row = 0; row < image.getWidth(); row++)
-			for(int col = 0; col < image.getHeight(); col++)
-				image.setRGB(row, col, get(col, row).getRGB());
+		//writes straight into the pixels backing the image, in horizontal stripes filled in parallel
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		int[] palette = grid.getAlphabet().getPalette();
+		
+		int numStripes = Math.min(numRows, 4 * Runtime.getRuntime().availableProcessors());
+		
+		IntStream.range(0, numStripes).parallel().forEach(stripe ->
+				grid.toRGB(pixels, palette, (int) ((long) numRows * stripe / numStripes), (int) ((long) numRows * (stripe + 1) / numStripes)));
 		
 		return image;
 	}
@@ -166,7 +388,7 @@ public class CellularAutomaton implements Iterable<Row>
 	{
 		String str = "";
 		
-		for(Row row : rows)
+		for(Row row : this)
 			str += row + "\n";
 		
 		if(str.length() > 0)
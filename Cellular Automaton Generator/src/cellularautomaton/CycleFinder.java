@@ -0,0 +1,126 @@
+package cellularautomaton;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * class CycleFinder to find the first Row of a CellularAutomaton that repeats an earlier Row.
+ * Every Row is generated from the Row above it alone, so once a Row repeats, the Rows after
+ * it repeat the Rows after the earlier Row forever, and the rest of the CellularAutomaton can
+ * be copied from the cycle instead of being generated.
+ * <br><br>
+ * Every Row is looked up in a hash table of the row indices of every sampleInterval-th Row,
+ * which keeps the table small enough to stay in cache. Once the Rows are cycling, one of the
+ * next sampleInterval Rows is a kept Row, and the Row one period after it finds it, so a
+ * cycle is found at most sampleInterval Rows after it has gone around once.
+ * <br><br>
+ * Each slot of the table keeps the high half of the hash of its Row next to the row index,
+ * and two Rows are only taken to be the same once their Cells have been compared, so a
+ * collision can never cause a wrong Row to be copied.
+ */
+class CycleFinder
+{
+	/**
+	 * the most Rows that can be kept, later Rows are only looked up
+	 */
+	static final int maxRows = 1 << 22;
+	
+	/**
+	 * the distance between the Rows that are kept
+	 */
+	private static final int sampleInterval = 16;
+	
+	private int numKept;
+	
+	/**
+	 * each slot of the hash table holds the high half of the hash of a Row above one more
+	 * than its row index, so most lookups only read the table, or 0 for an empty slot
+	 */
+	private long[] table;
+	private int mask;
+	
+	/**
+	 * Creates a CycleFinder for a CellularAutomaton with the specified number of Rows
+	 * 
+	 * @param numRows the number of Rows
+	 */
+	public CycleFinder(int numRows)
+	{
+		numKept = Math.min(numRows, maxRows);
+		
+		//keeps the table at most half full
+		int capacity = Integer.highestOneBit(Math.max(1, numKept / sampleInterval)) * 4;
+		table = new long[capacity];
+		mask = capacity - 1;
+		
+		clear();
+	}
+	
+	/**
+	 * Gets the number of Rows this CycleFinder was created for
+	 * 
+	 * @return the number of Rows that can be kept
+	 */
+	public int getNumRows()
+	{
+		return numKept;
+	}
+	
+	/**
+	 * Forgets every Row, so this CycleFinder can be used for another CellularAutomaton
+	 */
+	public void clear()
+	{
+		Arrays.fill(table, 0);
+	}
+	
+	/**
+	 * Looks up a Row, and keeps it if it is one of the Rows that are kept
+	 * 
+	 * @param row the row index of the Row, one more than the Row added before it
+	 * @param hash the hash of the Cells of the Row
+	 * @param isSame tests if the Row with the row index it is given has the same Cells as this Row
+	 * @return the row index of a kept earlier Row with the same Cells, or -1 if there is none
+	 */
+	public int add(int row, long hash, IntPredicate isSame)
+	{
+		int slot = (int) hash & mask;
+		long tag = hash & 0xFFFFFFFF00000000L;
+		
+		for(; table[slot] != 0; slot = (slot + 1) & mask)
+		{
+			if((table[slot] & 0xFFFFFFFF00000000L) != tag)
+				continue;
+			
+			int earlier = (int) table[slot] - 1;
+			
+			if(isSame.test(earlier))
+				return earlier;
+		}
+		
+		if(row < numKept && row % sampleInterval == 0)
+			table[slot] = tag | (row + 1);
+		
+		return -1;
+	}
+	
+	/**
+	 * Gets a 64 bit hash of the first numColumns ordinals of an array
+	 * 
+	 * @param ordinals the ordinals to hash
+	 * @param numColumns the number of ordinals to hash
+	 * @return the hash of the ordinals
+	 */
+	public static long hash(int[] ordinals, int numColumns)
+	{
+		long hash = numColumns;
+		
+		for(int col = 0; col + 1 < numColumns; col += 2)
+			hash = CellGrid.mix(hash, (long) ordinals[col] << 32 | ordinals[col + 1], 0x87C37B91114253D5L);
+		
+		if(numColumns % 2 == 1)
+			hash = CellGrid.mix(hash, ordinals[numColumns - 1], 0x87C37B91114253D5L);
+		
+		return CellGrid.finish(hash);
+	}
+}
@@ -1,12 +1,19 @@
 package cellularautomaton;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.zip.CRC32C;
 
 /**
  * class Dictionary to be used to map a Pattern of Cells to an Output.
@@ -26,27 +33,171 @@ public class Dictionary implements Cloneable
 	private int patternSize;
 	
 	/**
-	 * to map a unique String key associated with a unique permutation of Cells
-	 * contained in the alphabet for this Dictionary to a Cell output to define
-	 * a rule in this Dictionary
+	 * the number of Cells in the alphabet, each pattern of Cells is read as a
+	 * number written in this radix, with one digit per Cell
 	 */
-	private HashMap<String, Cell> outputMap;
+	private int radix;
 	
-	private ArrayList<String> keyList;
+	/**
+	 * what the output of a Cell depends on, and so what the patterns of this Dictionary are
+	 */
+	private RuleMode ruleMode;
+	
+	/**
+	 * the number of unique patterns of Cells, equal to radix^patternSize, or the number
+	 * of sums of a pattern when the output only depends on the sum of its Cells
+	 */
+	private int numPatterns;
+	
+	/**
+	 * the number of sums of the Cells of a pattern other than its center
+	 */
+	private int numOuterSums;
+	
+	/**
+	 * to map the pattern number of a unique permutation of Cells contained in the
+	 * alphabet for this Dictionary to the ordinal of its Cell output to define a
+	 * rule in this Dictionary, patterns that have not been mapped hold -1
+	 */
+	private RuleTable outputs;
+	
+	/**
+	 * the file the outputs are shared through with other programs reading the same rules, or null
+	 */
+	private File tableFile;
+	
+	/**
+	 * the pattern numbers in the order their rules were read, used to assign
+	 * the digits of a rule number to patterns, or null while key i is pattern
+	 * number i, the order of the template of rules, so a Dictionary with a rule
+	 * for every pattern in order does not keep a list as large as its outputs
+	 */
+	private int[] keyList;
+	private int numKeys;
+	
+	/**
+	 * the number of times the outputs of this Dictionary have changed, so an Engine that
+	 * compiled the outputs can tell when they have to be compiled again
+	 */
+	private int modCount;
+	
+	/**
+	 * the first int of a compiled file of rules, "CAGR" in ASCII, followed by the version of the format
+	 */
+	private static final int compiledMagic = 0x43414752;
+	private static final int compiledVersion = 3;
+	
+	/**
+	 * the number of ints before the keys in a compiled file of rules
+	 */
+	private static final int compiledHeaderSize = 11;
+	
+	/**
+	 * the smallest block of the template of rules written to a file at once
+	 */
+	private static final int permuteBlockSize = 1 << 16;
 	
 	/**
 	 * Creates a dictionary with specified alphabet and patternSize
 	 * 
 	 * @param alphabet the alphabet this Dictionary will use
 	 * @param patternSize the patternSize this Dictionary will use
+	 * @throws Exception if there are more patterns of size patternSize in the
+	 * alphabet than can be stored
+	 */
+	public Dictionary(Alphabet alphabet, int patternSize) throws Exception
+	{
+		this(alphabet, patternSize, null);
+	}
+	
+	/**
+	 * Creates a dictionary with specified alphabet and patternSize, whose outputs are kept
+	 * in a memory mapped file rather than on the heap, one byte per pattern, so the rules
+	 * of patterns too large for the heap can be defined. Copies of the Dictionary map the
+	 * file privately, and share the pages of the file none of them have changed. The file
+	 * is only rebuilt when it holds other rules than the rules read into this Dictionary,
+	 * so programs reading the same rules share it too.
+	 * 
+	 * @param alphabet the alphabet this Dictionary will use
+	 * @param patternSize the patternSize this Dictionary will use
+	 * @param table the file to keep the outputs in, or null to keep them on the heap
+	 * @throws Exception if there are more patterns of size patternSize in the
+	 * alphabet than can be stored, or there is a problem mapping the file
 	 */
-	public Dictionary(Alphabet alphabet, int patternSize)
+	public Dictionary(Alphabet alphabet, int patternSize, File table) throws Exception
+	{
+		this(alphabet, patternSize, RuleMode.PATTERN, table);
+	}
+	
+	/**
+	 * Creates a dictionary with specified alphabet, patternSize, and RuleMode, whose outputs
+	 * are kept in a memory mapped file rather than on the heap if a file is specified
+	 * 
+	 * @param alphabet the alphabet this Dictionary will use
+	 * @param patternSize the patternSize this Dictionary will use
+	 * @param ruleMode what the output of a Cell depends on
+	 * @param table the file to keep the outputs in, or null to keep them on the heap
+	 * @throws Exception if there are more patterns of size patternSize in the
+	 * alphabet than can be stored, or there is a problem mapping the file
+	 */
+	public Dictionary(Alphabet alphabet, int patternSize, RuleMode ruleMode, File table) throws Exception
 	{
 		this.alphabet = alphabet;
 		this.patternSize = patternSize;
+		this.ruleMode = ruleMode;
+		
+		radix = alphabet.numCells();
+		
+		numOuterSums = (radix - 1) * (patternSize - 1) + 1;
+		
+		long numPatterns;
+		if(ruleMode == RuleMode.TOTALISTIC)
+			numPatterns = (long) (radix - 1) * patternSize + 1;
+		else if(ruleMode == RuleMode.OUTER_TOTALISTIC)
+			numPatterns = (long) radix * numOuterSums;
+		else
+		{
+			numPatterns = 1;
+			for(int i = 0; i < patternSize && numPatterns <= Integer.MAX_VALUE; i++)
+				numPatterns *= radix;
+		}
+		
+		if(numPatterns > Integer.MAX_VALUE - 8)
+			throw new Exception( ""
+					+ "Error, an alphabet of " + radix + " Cells with a ruleSize of " + patternSize + " has\n"
+					+ "too many patterns to define rules for, lower the ruleSize in \"settings.txt\"\n"
+					+ "or remove Cells from \"alphabet.txt\" to continue.");
+		
+		this.numPatterns = (int) numPatterns;
+		
+		if(table == null)
+			outputs = RuleTable.allocate(radix, this.numPatterns);
+		else
+			outputs = RuleTable.map(table, radix, this.numPatterns);
 		
-		outputMap = new HashMap<String, Cell>();
-		keyList = new ArrayList<String>();
+		tableFile = table;
+		keyList = null;
+		numKeys = 0;
+	}
+	
+	/**
+	 * Creates a copy of the specified Dictionary with the specified outputs
+	 * 
+	 * @param toCopy the Dictionary to copy
+	 * @param outputs a copy of the outputs of the Dictionary
+	 */
+	private Dictionary(Dictionary toCopy, RuleTable outputs)
+	{
+		alphabet = toCopy.alphabet;
+		patternSize = toCopy.patternSize;
+		ruleMode = toCopy.ruleMode;
+		radix = toCopy.radix;
+		numPatterns = toCopy.numPatterns;
+		numOuterSums = toCopy.numOuterSums;
+		this.outputs = outputs;
+		keyList = toCopy.keyList == null ? null : Arrays.copyOf(toCopy.keyList, toCopy.numKeys);
+		numKeys = toCopy.numKeys;
+		modCount = toCopy.modCount;
 	}
 	
 	/**
@@ -57,39 +208,233 @@ public class Dictionary implements Cloneable
 	 */
 	public Cell getOutput(Cell[] pattern)
 	{
-		return outputMap.get(getKey(pattern));
+		int output = outputs.get(getIndex(pattern));
+		
+		return output < 0 ? null : alphabet.get(output);
+	}
+	
+	/**
+	 * Gets the ordinal of the Cell that was mapped as an output to the pattern
+	 * with the specified pattern number
+	 * 
+	 * @param index the pattern number to get its mapped output
+	 * @return the ordinal of the mapped output, or -1 if the pattern has not been mapped
+	 */
+	public int getOutput(int index)
+	{
+		return outputs.get(index);
 	}
 	
 	/**
-	 * Gets the hash key for the specified pattern of Cells.
-	 * Since each pattern has a unique permutation of Cells contained
-	 * in our Alphabet, and each Cell in our Alphabet has unique 
-	 * Identifier, combining the identifiers of the Cells in a pattern
-	 * will get a unique identifier for a pattern. The hash key for
-	 * a patter of Cells with identifiers as follows {W, W, B} would
+	 * Gets the pattern number for the specified pattern of Cells.
+	 * Since each Cell in our Alphabet has a unique ordinal less than
+	 * the radix, reading the ordinals of the Cells in a pattern as the
+	 * digits of a number, most significant first, will get a unique
+	 * number for a pattern. With the Alphabet {W, B} the pattern of
+	 * Cells {W, B, B} would return the following number:<br>
+	 * 0 * 4 + 1 * 2 + 1 = 3<br>
+	 * Totalistic rules number a pattern by the sum of its ordinals instead,
+	 * as described by their RuleMode.
+	 * 
+	 * @param pattern the pattern to get the unique pattern number of
+	 * @return the pattern number of pattern
+	 */
+	public int getIndex(Cell[] pattern)
+	{
+		int index = 0;
+		
+		if(ruleMode != RuleMode.PATTERN)
+		{
+			for(int i = 0; i < pattern.length; i++)
+				index += pattern[i].ordinal;
+			
+			if(ruleMode == RuleMode.OUTER_TOTALISTIC)
+			{
+				int center = pattern[pattern.length / 2].ordinal;
+				index = center * numOuterSums + index - center;
+			}
+			
+			return index;
+		}
+		
+		for(int i = 0; i < pattern.length; i++)
+			index = index * radix + pattern[i].ordinal;
+		
+		return index;
+	}
+	
+	/**
+	 * Gets the String key for the pattern with the specified pattern number,
+	 * made by combining the identifiers of the Cells in the pattern. The key
+	 * for a pattern of Cells with identifiers as follows {W, W, B} would
 	 * return the following key:<br>
-	 * "W W B "
+	 * "W W B "<br>
+	 * The key of a totalistic rule is its sum, "4 ", and the key of an
+	 * outer totalistic rule is its center followed by its sum, "B 3 ".
 	 * 
-	 * @param pattern the pattern to the unique hash-key of
-	 * @return the hash-key of pattern
+	 * @param index the pattern number to get the key of
+	 * @return the key of the pattern
 	 */
-	private String getKey(Cell[] pattern)
+	private String getKey(int index)
 	{
+		if(ruleMode == RuleMode.TOTALISTIC)
+			return index + " ";
+		
+		if(ruleMode == RuleMode.OUTER_TOTALISTIC)
+			return alphabet.get(index / numOuterSums).id + " " + index % numOuterSums + " ";
+		
 		String key = "";
 		
-		for(int i = 0; i < pattern.length; i++)
-			key += pattern[i].id + " ";
+		for(int i = 0; i < patternSize; i++)
+		{
+			key = alphabet.get(index % radix).id + " " + key;
+			index /= radix;
+		}
 		
 		return key;
 	}
 	
-	@SuppressWarnings("unchecked")
+	/**
+	 * Records the specified pattern number as the next key read in
+	 * 
+	 * @param index the pattern number to add to keyList
+	 */
+	private void addKey(int index)
+	{
+		if(keyList == null)
+		{
+			if(index == numKeys)
+			{
+				numKeys++;
+				return;
+			}
+			
+			//the first key out of order, the keys before it are their own indices
+			keyList = new int[Math.max(16, Math.min(numKeys * 2, numPatterns))];
+			for(int i = 0; i < numKeys; i++)
+				keyList[i] = i;
+		}
+		
+		if(numKeys == keyList.length)
+			keyList = Arrays.copyOf(keyList, Math.max(16, Math.min(numKeys * 2, numPatterns)));
+		
+		keyList[numKeys] = index;
+		numKeys++;
+	}
+	
 	public Dictionary clone()
 	{
-		Dictionary dictionary = new Dictionary(alphabet, patternSize);
-		dictionary.outputMap = (HashMap<String, Cell>) outputMap.clone();
-		dictionary.keyList =  (ArrayList<String>) keyList.clone();
-		return dictionary;
+		return new Dictionary(this, outputs.copy());
+	}
+	
+	/**
+	 * Creates a copy of this Dictionary whose outputs are kept in a new memory mapped file
+	 * next to the specified table file, so that many copies of the copy, each remapped to
+	 * rules close to the rules of the copy, share the pages of the file none of them change.
+	 * The outputs of a Dictionary kept on the heap are copied onto the heap.
+	 * 
+	 * @param table the table file the new file is made next to
+	 * @return a copy of this Dictionary
+	 * @throws IOException if there is a problem creating or mapping the file
+	 */
+	public Dictionary clone(File table) throws IOException
+	{
+		if(tableFile == null)
+			return clone();
+		
+		return new Dictionary(this, outputs.copyTo(table));
+	}
+	
+	/**
+	 * Deletes the file a copy made by clone(File) keeps its outputs in, once every copy of it has been
+	 * made, the file stays mapped by them, and is deleted when the program exits if this is never called
+	 */
+	public void deleteTable()
+	{
+		outputs.delete();
+	}
+	
+	/**
+	 * Gets the number of pages of the outputs of this Dictionary that are written to privately, rather
+	 * than being shared with the table file they are mapped from
+	 * 
+	 * @return the number of written pages, 0 for a Dictionary on the heap
+	 */
+	int getNumWrittenPages()
+	{
+		return outputs.getNumWrittenPages();
+	}
+	
+	/**
+	 * Gets the number of Cells in the Alphabet of this Dictionary
+	 * 
+	 * @return the radix that patterns are numbered in
+	 */
+	public int getRadix()
+	{
+		return radix;
+	}
+	
+	/**
+	 * Gets the number of Cells in each pattern of this Dictionary
+	 * 
+	 * @return the patternSize of this Dictionary
+	 */
+	public int getPatternSize()
+	{
+		return patternSize;
+	}
+	
+	/**
+	 * Gets what the output of a Cell depends on in this Dictionary
+	 * 
+	 * @return the RuleMode of this Dictionary
+	 */
+	public RuleMode getRuleMode()
+	{
+		return ruleMode;
+	}
+	
+	/**
+	 * Gets the number of unique patterns this Dictionary can map
+	 * 
+	 * @return radix^patternSize, or the number of sums of a pattern for a totalistic Dictionary
+	 */
+	public int getNumPatterns()
+	{
+		return numPatterns;
+	}
+	
+	/**
+	 * Gets the number of patterns that have been read in with a rule, which is
+	 * the number of digits of a rule number
+	 * 
+	 * @return the number of keys of this Dictionary
+	 */
+	public int getNumKeys()
+	{
+		return numKeys;
+	}
+	
+	/**
+	 * Gets the pattern number of the pattern that the specified digit of a rule number is the output of
+	 * 
+	 * @param i the index of the key, in the order the keys were read in
+	 * @return the pattern number of the key
+	 */
+	public int getKeyIndex(int i)
+	{
+		return keyList == null ? i : keyList[i];
+	}
+	
+	/**
+	 * Gets the Alphabet of this Dictionary
+	 * 
+	 * @return the Alphabet of this Dictionary
+	 */
+	public Alphabet getAlphabet()
+	{
+		return alphabet;
 	}
 	
 	/**
@@ -112,101 +457,466 @@ public class Dictionary implements Cloneable
 	 */
 	public void setOutputMap(File file) throws Exception
 	{
-		Scanner scan = new Scanner(file);
-		while(scan.hasNext())
+		long[] stamp = tableFile == null ? null : getStamp(file.length(), getChecksum(file));
+		
+		if(openTable(stamp))
+			return;
+		
+		boolean isNewTable = tableFile != null && modCount == 0;
+		
+		RuleScanner scan = new RuleScanner(file, alphabet);
+		
+		try
 		{
-			Cell[] pattern = new Cell[patternSize];
-			
-			int i = 0;
-			while(i < patternSize)
+			while(scan.hasNext())
 			{
-				pattern[i] = alphabet.get(scan.next());
-				i++;
+				int index = 0;
+				
+				if(ruleMode == RuleMode.TOTALISTIC)
+					index = scan.nextNumber(numPatterns - 1);
+				else if(ruleMode == RuleMode.OUTER_TOTALISTIC)
+				{
+					index = scan.nextOrdinal() * numOuterSums;
+					index += scan.nextNumber(numOuterSums - 1);
+				}
+				
+				int i = 0;
+				while(ruleMode == RuleMode.PATTERN && i < patternSize)
+				{
+					index = index * radix + scan.nextOrdinal();
+					i++;
+				}
+				
+				//skip past "->"
+				scan.skip();
+				
+				outputs.set(index, scan.nextOrdinal());
+				addKey(index);
 			}
+		}
+		finally
+		{
+			scan.close();
+			modCount++;
+		}
+		
+		if(isNewTable)
+			outputs.save(tableFile, stamp, keyList, numKeys);
+	}
+	
+	/**
+	 * Gets the numbers that identify the rules of a table file, the shape of this Dictionary
+	 * and the size and checksum of the file the rules are read from. The contents are used
+	 * rather than when the file was modified, since the template of rules is rewritten the
+	 * same each time a program starts.
+	 * 
+	 * @param sourceLength the length of the file of rules, or -1 if the rules are not read from a file
+	 * @param sourceChecksum the checksum of the file of rules, or what the rules are made of otherwise
+	 * @return the stamp of the rules
+	 */
+	private long[] getStamp(long sourceLength, long sourceChecksum)
+	{
+		return new long[] {radix, patternSize, ruleMode.ordinal(), getAlphabetFingerprint(), sourceLength, sourceChecksum};
+	}
+	
+	/**
+	 * Gets the CRC-32C of the contents of a file, read from a memory map a window at a time
+	 * 
+	 * @param file the file
+	 * @return the checksum of the file
+	 * @throws IOException if there is a problem reading the file
+	 */
+	private static long getChecksum(File file) throws IOException
+	{
+		CRC32C checksum = new CRC32C();
+		
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			long size = channel.size();
 			
-			//skip past "->"
-			scan.next();
+			for(long position = 0; position < size; position += 1 << 30)
+				checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(1 << 30, size - position)));
+		}
+		
+		return checksum.getValue();
+	}
+	
+	/**
+	 * Maps the table file in place of the new table of this Dictionary if the file holds the rules with the specified stamp
+	 * 
+	 * @param stamp the stamp of the rules
+	 * @return true if the table file was mapped, or false if this Dictionary does not keep its outputs
+	 * in a table file, has already been changed, or the file holds other rules
+	 * @throws IOException if there is a problem reading the table file
+	 */
+	private boolean openTable(long[] stamp) throws IOException
+	{
+		if(tableFile == null || modCount != 0)
+			return false;
+		
+		RuleTable table = RuleTable.open(tableFile, radix, numPatterns, stamp);
+		
+		if(table == null)
+			return false;
+		
+		outputs.discard();
+		outputs = table;
+		keyList = table.getKeys();
+		numKeys = table.getNumKeys();
+		modCount++;
+		
+		return true;
+	}
+	
+	/**
+	 * Maps the patterns to the outputs listed in a file, the same as setOutputMap(File file), but
+	 * loads them from a compiled copy of the file instead when the copy was compiled from a file
+	 * with the same size and checksum, with the same Alphabet and patternSize. Otherwise the file
+	 * is read, and compiled into the copy, so a large file of rules is only parsed once.
+	 * 
+	 * @param file the file that contains the information to map the patterns to the outputs
+	 * @param compiled the compiled copy of the file, which does not have to exist
+	 * @throws Exception if there is a problem with reading the file or writing the compiled copy,
+	 * or if the mapped patterns to outputs provided in the file is illegal.
+	 */
+	public void setOutputMap(File file, File compiled) throws Exception
+	{
+		long sourceLength = file.length();
+		long sourceChecksum = getChecksum(file);
+		
+		if(compiled.exists() && readCompiled(compiled, sourceLength, sourceChecksum))
+			return;
+		
+		setOutputMap(file);
+		writeCompiled(compiled, sourceLength, sourceChecksum);
+	}
+	
+	/**
+	 * Gets a number that identifies the Cells of the Alphabet of this Dictionary in order,
+	 * so a compiled file of rules is not read with an Alphabet that numbers its Cells differently
+	 * 
+	 * @return the fingerprint of the Alphabet
+	 */
+	private int getAlphabetFingerprint()
+	{
+		int fingerprint = radix;
+		
+		for(int ordinal = 0; ordinal < radix; ordinal++)
+			fingerprint = 31 * fingerprint + alphabet.get(ordinal).id.hashCode();
+		
+		return fingerprint;
+	}
+	
+	/**
+	 * Writes the keys of this Dictionary and their outputs to a compiled file of rules, as ints after a header
+	 * of the format, radix, patternSize, RuleMode, Alphabet fingerprint, size and checksum of the file of rules,
+	 * and number of keys. Rules with too many keys for the compiled file to fit in a single buffer are not
+	 * compiled, and the compiled file of the rules read before them is deleted.
+	 * 
+	 * @param compiled the file to write
+	 * @param sourceLength the size of the file of rules
+	 * @param sourceChecksum the checksum of the file of rules
+	 * @throws IOException if there is a problem writing the file
+	 */
+	private void writeCompiled(File compiled, long sourceLength, long sourceChecksum) throws IOException
+	{
+		long size = 4L * (compiledHeaderSize + 2L * numKeys);
+		
+		if(size > Integer.MAX_VALUE)
+		{
+			compiled.delete();
+			return;
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		IntBuffer ints = buffer.asIntBuffer();
+		
+		ints.put(compiledMagic).put(compiledVersion).put(radix).put(patternSize).put(ruleMode.ordinal());
+		ints.put(getAlphabetFingerprint());
+		ints.put((int) (sourceLength >>> 32)).put((int) sourceLength);
+		ints.put((int) (sourceChecksum >>> 32)).put((int) sourceChecksum);
+		ints.put(numKeys);
+		for(int i = 0; i < numKeys; i++)
+			ints.put(getKeyIndex(i));
+		for(int i = 0; i < numKeys; i++)
+			ints.put(outputs.get(getKeyIndex(i)));
+		
+		try(FileChannel channel = FileChannel.open(compiled.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+		}
+	}
+	
+	/**
+	 * Reads the keys and outputs of a compiled file of rules into this Dictionary with a single read
+	 * 
+	 * @param compiled the file to read
+	 * @param sourceLength the size of the file of rules
+	 * @param sourceChecksum the checksum of the file of rules
+	 * @return true if the file was read, or false if it was not compiled from a file of rules with the same size
+	 * and checksum, with the Alphabet and patternSize and RuleMode of this Dictionary, or was cut short, in which
+	 * case nothing is changed
+	 * @throws IOException if there is a problem reading the file
+	 */
+	private boolean readCompiled(File compiled, long sourceLength, long sourceChecksum) throws IOException
+	{
+		ByteBuffer buffer;
+		
+		try(FileChannel channel = FileChannel.open(compiled.toPath(), StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			
+			if(size < 4 * compiledHeaderSize || size > Integer.MAX_VALUE)
+				return false;
 			
-			Cell output = alphabet.get(scan.next());
-			String key = getKey(pattern);
-			outputMap.put(getKey(pattern), output);
-			keyList.add(key);
+			buffer = ByteBuffer.allocate((int) size);
+			while(buffer.hasRemaining() && channel.read(buffer) >= 0);
+		}
+		
+		buffer.flip();
+		IntBuffer ints = buffer.asIntBuffer();
+		
+		if(ints.get() != compiledMagic || ints.get() != compiledVersion || ints.get() != radix
+				|| ints.get() != patternSize || ints.get() != ruleMode.ordinal() || ints.get() != getAlphabetFingerprint())
+			return false;
+		
+		if(getLong(ints) != sourceLength || getLong(ints) != sourceChecksum)
+			return false;
+		
+		int count = ints.get();
+		
+		if(count < 0 || ints.remaining() != 2L * count)
+			return false;
+		
+		int[] keys = new int[count];
+		int[] values = new int[count];
+		ints.get(keys);
+		ints.get(values);
+		
+		for(int i = 0; i < count; i++)
+			if(keys[i] < 0 || keys[i] >= numPatterns || values[i] < 0 || values[i] >= radix)
+				return false;
+		
+		for(int i = 0; i < count; i++)
+		{
+			outputs.set(keys[i], values[i]);
+			addKey(keys[i]);
 		}
+		modCount++;
 		
-		scan.close();
+		return true;
+	}
+	
+	/**
+	 * Gets the long written as its high and low ints at the position of an IntBuffer
+	 * 
+	 * @param ints the ints to read from
+	 * @return the long
+	 */
+	private static long getLong(IntBuffer ints)
+	{
+		long high = ints.get();
+		return high << 32 | (ints.get() & 0xFFFFFFFFL);
 	}
 	
 	public void remap(Cell[] pattern, Cell output)
 	{
-		outputMap.put(getKey(pattern), output);
+		outputs.set(getIndex(pattern), output == null ? -1 : output.ordinal);
+		modCount++;
 	}
 	
 	public void remap(ArrayList<Integer> ruleNumber)
 	{
-		ArrayList<Cell> setOfCells = alphabet.getSetOfCells();
-		int i = 0;
-		for(String key : keyList)
-		{
-			outputMap.put(key, setOfCells.get(ruleNumber.get(i)));
-			i++;
-		}
+		for(int i = 0; i < numKeys; i++)
+			outputs.set(getKeyIndex(i), ruleNumber.get(i));
+		modCount++;
 	}
 	
 	/**
-	 * Writes a String to a BufferedWriter
+	 * Sets the output of every pattern with a rule from the digits of a rule number
 	 * 
-	 * @param permutation the String to write
-	 * @param bw the BufferedWriter to write to
+	 * @param ruleNumber the digits of the rule number, least significant first, one for each pattern in keyList
 	 */
-	private static void write(String permutation, BufferedWriter bw)
-	{		
-		try {
-			bw.write(permutation + "= NULL\n");
-		} catch (Exception ex) { ex.printStackTrace(); }
+	public void remap(int[] ruleNumber)
+	{
+		remap(ruleNumber, numKeys);
 	}
 	
 	/**
-	 * Does the work necessary for method permute(File output).
+	 * Sets the output of the first patterns with a rule from the least significant digits of a rule number,
+	 * leaving the outputs of the other patterns as they are
 	 * 
-	 * @param set the set of all the identifiers for Cells contained within alphabet
-	 * @param permutation a permutation of identifiers 
-	 * @param n the size of set
-	 * @param k the number of remaining elements to add to the current permutation
-	 * @param bw the BufferedWriter to write the completed permutations to
+	 * @param ruleNumber the digits of the rule number, least significant first, one for each pattern in keyList
+	 * @param count the number of digits to set the outputs from
 	 */
-	private static void permute(String[] set, String permutation, int n, int k, BufferedWriter bw)
+	public void remap(int[] ruleNumber, int count)
 	{
-		if(k == 0)
-			write(permutation, bw);
-		else
-			for(int i = 0; i < n; i++)
-				permute(set, permutation + set[i] + " ", n, k - 1, bw);
+		for(int i = 0; i < Math.min(count, numKeys); i++)
+			outputs.set(getKeyIndex(i), ruleNumber[i]);
+		modCount++;
+	}
+	
+	/**
+	 * Sets the output of the first patterns with a rule from the least significant digits of the
+	 * rule number of a RuleOdometer, leaving the outputs of the other patterns as they are
+	 * 
+	 * @param odometer the RuleOdometer, with one digit for each pattern in keyList
+	 * @param count the number of digits to set the outputs from
+	 */
+	public void remap(RuleOdometer odometer, int count)
+	{
+		for(int i = 0; i < Math.min(count, numKeys); i++)
+			outputs.set(getKeyIndex(i), odometer.getDigit(i));
+		modCount++;
+	}
+	
+	/**
+	 * Gets the number of times the outputs of this Dictionary have changed
+	 * 
+	 * @return a number that changes whenever an output changes
+	 */
+	public int getModCount()
+	{
+		return modCount;
 	}
 	
 	/**
 	 * Writes all the possible permutations of patterns that could occur in
-	 * a CellularAutomaton with the matching Alphabet of Cells, and patternSize. 
+	 * a CellularAutomaton with the matching Alphabet of Cells, and patternSize,
+	 * each mapped to NULL, in order of pattern number. The patterns are counted
+	 * through with a RuleOdometer, one digit per Cell, and only the identifiers of
+	 * the Cells that changed are rewritten in the line of the last pattern. Lines are
+	 * gathered in a single buffer that is written to the file a block at a time, so
+	 * nothing is allocated for each pattern no matter how many patterns there are.
+	 * The few patterns of a totalistic Dictionary are written by their keys.
 	 *  
 	 * @param output the file to write permutations to.
 	 * @throws Exception if there is a problem writing to file specified by output
 	 */
 	public void permute(File output) throws Exception
 	{
-		ArrayList<Cell> list = alphabet.getSetOfCells();
+		if(ruleMode != RuleMode.PATTERN)
+		{
+			StringBuilder lines = new StringBuilder();
+			
+			for(int index = 0; index < numPatterns; index++)
+				lines.append(getKey(index)).append("= NULL\n");
+			
+			Files.write(output.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+		
+		byte[][] ids = new byte[radix][];
+		int maxIdLength = 0;
+		
+		for(int ordinal = 0; ordinal < radix; ordinal++)
+		{
+			ids[ordinal] = (alphabet.get(ordinal) + " ").getBytes(StandardCharsets.UTF_8);
+			maxIdLength = Math.max(maxIdLength, ids[ordinal].length);
+		}
+		
+		byte[] suffix = "= NULL\n".getBytes(StandardCharsets.UTF_8);
+		
+		//the line of the current pattern, the identifier of Cell i of the pattern starts at starts[i]
+		byte[] line = new byte[maxIdLength * patternSize + suffix.length];
+		int[] starts = new int[patternSize + 1];
+		
+		ByteBuffer block = ByteBuffer.allocate(Math.max(permuteBlockSize, 2 * line.length));
+		
+		//digits[0] is the last Cell of a pattern, the least significant digit of its pattern number
+		RuleOdometer odometer = new RuleOdometer(radix, patternSize);
+		
+		int numChanged = patternSize;
+		
+		try(FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			for(int index = 0; index < numPatterns; index++)
+			{
+				for(int i = patternSize - numChanged; i < patternSize; i++)
+				{
+					byte[] id = ids[odometer.getDigit(patternSize - 1 - i)];
+					System.arraycopy(id, 0, line, starts[i], id.length);
+					starts[i + 1] = starts[i] + id.length;
+				}
+				
+				System.arraycopy(suffix, 0, line, starts[patternSize], suffix.length);
+				
+				if(block.remaining() < line.length)
+					write(block, channel);
+				
+				block.put(line, 0, starts[patternSize] + suffix.length);
+				
+				numChanged = odometer.increment();
+			}
+			
+			write(block, channel);
+		}
+	}
+	
+	/**
+	 * Writes the contents of a buffer to a file, and empties the buffer
+	 * 
+	 * @param buffer the buffer to write
+	 * @param channel the file to write to
+	 * @throws IOException if there is a problem writing to the file
+	 */
+	private static void write(ByteBuffer buffer, FileChannel channel) throws IOException
+	{
+		buffer.flip();
 		
-		String[] set = new String[list.size()];
+		while(buffer.hasRemaining())
+			channel.write(buffer);
 		
-		for(int i = 0; i < list.size(); i++)
-			set[i] = list.get(i).toString();
+		buffer.clear();
+	}
+	
+	/**
+	 * Maps every pattern to the specified output, in order of pattern number, the same
+	 * as reading the template of rules written by permute when output is NULL, without
+	 * writing or reading the template
+	 * 
+	 * @param output the Cell every pattern generates
+	 */
+	public void setOutputMap(Cell output)
+	{
+		long[] stamp = getStamp(-1, output.ordinal);
 		
-		BufferedWriter bw = new BufferedWriter(new FileWriter(output));
-		permute(set, "", set.length, patternSize, bw);
-		bw.close();
+		try
+		{
+			if(openTable(stamp))
+				return;
+			
+			boolean isNewTable = tableFile != null && modCount == 0;
+			
+			for(int index = 0; index < numPatterns; index++)
+			{
+				outputs.set(index, output.ordinal);
+				addKey(index);
+			}
+			
+			modCount++;
+			
+			if(isNewTable)
+				outputs.save(tableFile, stamp, keyList, numKeys);
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException("Error, could not share the rule table \"" + tableFile.getName() + "\"", ex);
+		}
 	}
 	
 	public Set<String> getAllKeys()
 	{
-		return outputMap.keySet();
+		Set<String> keys = new LinkedHashSet<String>();
+		
+		for(int index = 0; index < numPatterns; index++)
+			if(outputs.get(index) >= 0)
+				keys.add(getKey(index));
+		
+		return keys;
 	}
 	
 	public String toString()
@@ -214,10 +924,9 @@ public class Dictionary implements Cloneable
 		String str = super.toString();
 		str = str.substring(str.indexOf('.') + 1) + ":\n";
 		
-		Set<String> set = outputMap.keySet();
-		
-		for(String key : set)
-			str += key + "= " + outputMap.get(key) + "\n";
+		for(int index = 0; index < numPatterns; index++)
+			if(outputs.get(index) >= 0)
+				str += getKey(index) + "= " + alphabet.get(outputs.get(index)) + "\n";
 		
 		if(str.length() > 0)
 			str = str.substring(0, str.length() - 1);
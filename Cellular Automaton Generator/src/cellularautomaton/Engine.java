@@ -0,0 +1,177 @@
+package cellularautomaton;
+
+/**
+ * class Engine, the common form of the kernels that compute the Rows of a
+ * CellularAutomaton. An Engine holds a current Row in whatever form suits it,
+ * can advance it by one generation, and can copy it into a CellGrid.
+ */
+abstract class Engine
+{
+	protected Dictionary dictionary;
+	protected int numColumns;
+	
+	/**
+	 * the modCount of the Dictionary when this Engine was created or last updated
+	 */
+	private int modCount;
+	
+	/**
+	 * Creates an Engine for Rows with the specified number of columns
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param numColumns the number of Cells in each Row
+	 */
+	protected Engine(Dictionary dictionary, int numColumns)
+	{
+		this.dictionary = dictionary;
+		this.numColumns = numColumns;
+		
+		modCount = dictionary.getModCount();
+	}
+	
+	/**
+	 * Chooses the fastest Engine able to generate with the specified rules
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param numColumns the number of Cells in each Row
+	 * @return an Engine for the specified rules
+	 */
+	public static Engine create(Dictionary dictionary, int numColumns)
+	{
+		if(dictionary.getRuleMode() != RuleMode.PATTERN)
+			return new TotalisticEngine(dictionary, numColumns);
+		
+		if(BitEngine.supports(dictionary))
+			return new BitEngine(dictionary, numColumns);
+		
+		if(BlockedEngine.supports(numColumns))
+			return new BlockedEngine(dictionary, numColumns);
+		
+		return new Generator(dictionary, numColumns);
+	}
+	
+	/**
+	 * Chooses the fastest Engine able to generate Rows that are the specified number of generations apart
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param numColumns the number of Cells in each Row
+	 * @param rowStride the number of generations between the Rows that are stored
+	 * @return an Engine for the specified rules
+	 */
+	public static Engine create(Dictionary dictionary, int numColumns, long rowStride)
+	{
+		if(usesHashLife(dictionary, rowStride))
+			return new HashLifeEngine(dictionary, numColumns);
+		
+		return create(dictionary, numColumns);
+	}
+	
+	/**
+	 * Returns true if Rows that are the specified number of generations apart are generated
+	 * by a HashLifeEngine, which only looks up the outputs of patterns by pattern number
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param rowStride the number of generations between the Rows that are stored
+	 * @return if the stride is long enough and the rules are in RuleMode.PATTERN
+	 */
+	private static boolean usesHashLife(Dictionary dictionary, long rowStride)
+	{
+		return rowStride >= HashLifeEngine.minStride && dictionary.getRuleMode() == RuleMode.PATTERN;
+	}
+	
+	/**
+	 * Gets an Engine for the specified rules, reusing the specified Engine when it generates with
+	 * the same Dictionary and number of columns, so generating one rule after another with a
+	 * Dictionary that is remapped in place allocates nothing
+	 * 
+	 * @param engine the Engine of the last generation, or null
+	 * @param dictionary the rules to generate with
+	 * @param numColumns the number of Cells in each Row
+	 * @param rowStride the number of generations between the Rows that are stored
+	 * @return the specified Engine brought up to date with the Dictionary, or a new Engine
+	 */
+	public static Engine reuse(Engine engine, Dictionary dictionary, int numColumns, long rowStride)
+	{
+		//the nodes of a HashLifeEngine are generations of its rules, so it is never reused
+		if(engine == null || engine.dictionary != dictionary || engine.numColumns != numColumns
+				|| engine instanceof HashLifeEngine || usesHashLife(dictionary, rowStride))
+			return create(dictionary, numColumns, rowStride);
+		
+		engine.refresh();
+		
+		return engine;
+	}
+	
+	/**
+	 * Brings this Engine up to date with its Dictionary if the Dictionary has been remapped
+	 * since this Engine was created or last refreshed
+	 */
+	void refresh()
+	{
+		if(modCount != dictionary.getModCount())
+		{
+			update();
+			modCount = dictionary.getModCount();
+		}
+	}
+	
+	/**
+	 * Brings this Engine up to date with outputs of its Dictionary that changed after it was
+	 * created, an Engine that reads the outputs from the Dictionary as it generates has nothing to do
+	 */
+	protected void update()
+	{
+	}
+	
+	/**
+	 * Gets the ordinal that generating a pattern produces, patterns without a rule generate NULL
+	 * 
+	 * @param index the pattern number
+	 * @param NULL the ordinal of NULL
+	 * @return the ordinal of the Cell the pattern generates
+	 */
+	protected int getOutput(int index, int NULL)
+	{
+		int output = dictionary.getOutput(index);
+		
+		return output < 0 ? NULL : output;
+	}
+	
+	/**
+	 * Sets the current Row of this Engine to the specified Row
+	 * 
+	 * @param row the Row to start generating from
+	 */
+	public abstract void load(Row row);
+	
+	/**
+	 * Generates the next Row from the current Row, and makes it the current Row
+	 */
+	public abstract void step();
+	
+	/**
+	 * Advances the current Row by the specified number of generations
+	 * 
+	 * @param generations the number of generations to advance by
+	 */
+	public void advance(long generations)
+	{
+		for(long i = 0; i < generations; i++)
+			step();
+	}
+	
+	/**
+	 * Copies the current Row into the specified row of a CellGrid
+	 * 
+	 * @param grid the CellGrid to copy the current Row into
+	 * @param row the row index of the CellGrid to copy into
+	 */
+	public abstract void store(CellGrid grid, int row);
+	
+	/**
+	 * Copies the ordinals of the current Row into the specified array
+	 * 
+	 * @param ordinals the array to copy the current Row into, at least numColumns long
+	 */
+	public abstract void store(int[] ordinals);
+}
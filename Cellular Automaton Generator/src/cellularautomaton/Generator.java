@@ -0,0 +1,228 @@
+package cellularautomaton;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * class Generator to compute the Rows of a CellularAutomaton one after another
+ * without allocating anything per Cell or per Row. The ordinals of the current
+ * Row and the Row being generated are kept in two preallocated buffers that are
+ * swapped after every generation.
+ * <br><br>
+ * Each buffer is padded with NULL on both sides, so the pattern centered on any
+ * Cell can be read without checking the boundaries of the Row. The pattern number
+ * is kept in a rolling window: moving one Cell to the right multiplies it by the
+ * radix, adds the new Cell, and drops the Cell that left the window.
+ * <br><br>
+ * Wide Rows are split into tiles of columns that are generated in parallel. Each
+ * tile starts its own window from the patternSize / 2 Cells to the left of it in the
+ * parent Row, so the generated Row is identical to generating it in one pass.
+ */
+class Generator extends Engine
+{
+	/**
+	 * the narrowest Row that is split into tiles generated in parallel
+	 */
+	private static final int minParallelColumns = 1 << 15;
+	
+	/**
+	 * the narrowest tile a Row is split into
+	 */
+	private static final int minTileColumns = 1 << 13;
+	
+	/**
+	 * the most patterns whose outputs are copied into a Generator, the outputs of more
+	 * patterns are looked up in the Dictionary so a large table is never copied
+	 */
+	private static final int maxCopiedPatterns = 1 << 16;
+	
+	protected int patternSize;
+	private int radix;
+	
+	/**
+	 * radix^(patternSize - 1), the place value of the oldest Cell in the window
+	 */
+	private int highPlace;
+	
+	/**
+	 * the number of NULL Cells padding the left side of each buffer, which is
+	 * the distance from the first Cell of a pattern to its center
+	 */
+	protected int leftPadding;
+	
+	protected int NULL;
+	
+	protected int[] current;
+	private int[] next;
+	
+	/**
+	 * the ordinal each pattern generates, NULL for patterns without a rule,
+	 * or null when the outputs are looked up in the Dictionary
+	 */
+	protected int[] outputs;
+	
+	/**
+	 * the number of tiles each Row is split into
+	 */
+	private int numTiles;
+	
+	/**
+	 * Creates a Generator for Rows with the specified number of columns
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param numColumns the number of Cells in each Row
+	 */
+	public Generator(Dictionary dictionary, int numColumns)
+	{
+		super(dictionary, numColumns);
+		
+		patternSize = dictionary.getPatternSize();
+		radix = dictionary.getRadix();
+		
+		highPlace = 1;
+		for(int i = 1; i < patternSize; i++)
+			highPlace *= radix;
+		
+		leftPadding = patternSize / 2;
+		
+		NULL = dictionary.getAlphabet().getNULLordinal();
+		
+		if(NULL < 0)
+			throw new IllegalStateException("Error, NULL has not been set in the Alphabet of " + dictionary);
+		
+		current = newBuffer();
+		next = newBuffer();
+		
+		if(dictionary.getNumPatterns() <= maxCopiedPatterns)
+		{
+			outputs = new int[dictionary.getNumPatterns()];
+			update();
+		}
+		
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		
+		numTiles = 1;
+		if(numColumns >= minParallelColumns && parallelism > 1)
+			numTiles = Math.max(1, Math.min(4 * parallelism, numColumns / minTileColumns));
+	}
+	
+	/**
+	 * Creates a buffer large enough to hold a Row and its padding, filled with NULL
+	 * 
+	 * @return a new buffer filled with NULL
+	 */
+	protected int[] newBuffer()
+	{
+		int[] buffer = new int[numColumns + patternSize - 1];
+		
+		for(int i = 0; i < buffer.length; i++)
+			buffer[i] = NULL;
+		
+		return buffer;
+	}
+	
+	protected void update()
+	{
+		if(outputs != null)
+			for(int index = 0; index < outputs.length; index++)
+				outputs[index] = getOutput(index, NULL);
+	}
+	
+	public void load(Row row)
+	{
+		for(int col = 0; col < numColumns; col++)
+		{
+			Cell cell = row.get(col);
+			current[leftPadding + col] = cell == null ? NULL : cell.ordinal;
+		}
+	}
+	
+	public void step()
+	{
+		int[] parent = current;
+		int[] child = next;
+		
+		if(numTiles == 1)
+			step(parent, child, 0, numColumns);
+		else
+			IntStream.range(0, numTiles).parallel().forEach(tile ->
+					step(parent, child, getTileStart(tile), getTileStart(tile + 1)));
+		
+		current = child;
+		next = parent;
+	}
+	
+	/**
+	 * Gets the first column of the specified tile
+	 * 
+	 * @param tile the index of the tile
+	 * @return the first column of the tile, or numColumns for the tile past the last one
+	 */
+	private int getTileStart(int tile)
+	{
+		return (int) ((long) numColumns * tile / numTiles);
+	}
+	
+	/**
+	 * Generates the Cells in a range of columns of the child Row from the parent Row
+	 * 
+	 * @param parent the buffer holding the parent Row
+	 * @param child the buffer to generate the Cells into
+	 * @param from the first column to generate, inclusive
+	 * @param to the last column to generate, exclusive
+	 */
+	protected void step(int[] parent, int[] child, int from, int to)
+	{
+		//the pattern number of the first patternSize - 1 Cells of the window, the
+		//window for column col starts at buffer index col because of the padding
+		int index = 0;
+		for(int i = 0; i < patternSize - 1; i++)
+			index = index * radix + parent[from + i];
+		
+		int[] outputs = this.outputs;
+		
+		int last = patternSize - 1;
+		for(int col = from; col < to; col++)
+		{
+			index = index * radix + parent[col + last];
+			
+			child[leftPadding + col] = outputs != null ? outputs[index] : getOutput(index, NULL);
+			
+			index -= parent[col] * highPlace;
+		}
+	}
+	
+	/**
+	 * Gets the ordinal of the Cell at the specified column of the current Row
+	 * 
+	 * @param col the column of the Cell
+	 * @return the ordinal of the Cell at the specified column
+	 */
+	public int get(int col)
+	{
+		return current[leftPadding + col];
+	}
+	
+	/**
+	 * Copies the current Row into the specified Row
+	 * 
+	 * @param row the Row to copy the Cells of the current Row into
+	 */
+	public void store(Row row)
+	{
+		Alphabet alphabet = dictionary.getAlphabet();
+		
+		for(int col = 0; col < numColumns; col++)
+			row.set(col, alphabet.get(current[leftPadding + col]));
+	}
+	
+	public void store(CellGrid grid, int row)
+	{
+		grid.setRow(row, current, leftPadding);
+	}
+	
+	public void store(int[] ordinals)
+	{
+		System.arraycopy(current, leftPadding, ordinals, 0, numColumns);
+	}
+}
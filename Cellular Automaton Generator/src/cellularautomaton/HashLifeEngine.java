@@ -0,0 +1,552 @@
+package cellularautomaton;
+
+/**
+ * class HashLifeEngine to jump a CellularAutomaton forward by many generations at once.
+ * A Row is stored as a binary tree of segments, where a node of level n is a segment of
+ * 2^n Cells made of two nodes of level n - 1, and the leaves are single Cells. Every node
+ * is hash consed, so a segment that appears many times, in a Row or across generations, is
+ * a single node.
+ * <br><br>
+ * Each node remembers the middle half of its segment advanced by 2^j generations, which is
+ * all the Cells of the segment that only depend on Cells inside of it. The result of a node
+ * is built from the results of the nodes of the level below it, so a rule whose Rows repeat
+ * the same segments advances by 2^j generations in about as many steps as there are distinct
+ * segments, rather than 2^j times the number of Cells.
+ * <br><br>
+ * The NULL Cells past the ends of a Row never change, so they are modelled as an extra wall
+ * Cell that reads as NULL to its neighbors and always generates itself. The results are the
+ * same as generating every Row one after another.
+ * <br><br>
+ * A rule whose Rows rarely repeat a segment makes a new node for nearly every segment it
+ * generates, which is far slower than generating the Cells. Once that happens, the current
+ * Row is handed over to a step by step Engine for the rest of the generations.
+ */
+class HashLifeEngine extends Engine
+{
+	/**
+	 * the smallest number of generations between Rows that is jumped with a HashLifeEngine
+	 */
+	public static final long minStride = 64;
+	
+	/**
+	 * about how many bytes of the heap a node takes up: its object of 40 bytes, its array of a
+	 * few results, and the one or two slots of the hash table it takes, with room for a resize
+	 */
+	private static final int bytesPerNode = 80;
+	
+	/**
+	 * the share of the heap the nodes of the HashLifeEngines generating at once take up together,
+	 * the rest is left for the CellGrids and images being generated
+	 */
+	private static final double heapShare = 0.5;
+	
+	/**
+	 * about how many Cells a step by step Engine generates in the time it takes to make a new node
+	 */
+	private static final int cellsPerNode = 1000;
+	
+	private int radix;
+	private int patternSize;
+	private int leftRadius;
+	private int NULL;
+	
+	/**
+	 * the ordinal of the wall Cell past the ends of the Row
+	 */
+	private int wall;
+	
+	/**
+	 * the level of the smallest node whose result is generated one Cell at a time,
+	 * its middle half is at least one pattern away from both of its ends
+	 */
+	private int baseLevel;
+	
+	/**
+	 * the level of the node holding the current Row, starting at its first Cell
+	 */
+	private int rowLevel;
+	private Node row;
+	
+	/**
+	 * the nodes made entirely of wall Cells, indexed by level
+	 */
+	private Node[] walls;
+	
+	/**
+	 * the hash table of every node, chained through Node.next
+	 */
+	private Node[] table;
+	private int numNodes;
+	private int nextId;
+	
+	/**
+	 * the most nodes kept, beyond which every node is forgotten and the current Row is rebuilt,
+	 * as many as fit in this HashLifeEngine's share of the heap
+	 */
+	private int nodeLimit;
+	
+	private int[] ordinals;
+	
+	/**
+	 * the number of nodes made and generations advanced since the starting Row was loaded
+	 */
+	private long numCreated;
+	private long numGenerations;
+	
+	/**
+	 * generates the current Row step by step once nodes are made too often to pay off, null until then
+	 */
+	private Engine stepper;
+	
+	/**
+	 * thrown when there are more than nodeLimit nodes, to start over with fewer generations at a time
+	 */
+	private static class TooManyNodesException extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+	}
+	
+	private static class Node
+	{
+		private int level;
+		private int ordinal;
+		private int id;
+		private Node left;
+		private Node right;
+		private Node next;
+		
+		/**
+		 * the middle half of this node advanced by 2^j generations, indexed by j
+		 */
+		private Node[] results;
+	}
+	
+	/**
+	 * Creates a HashLifeEngine for Rows with the specified number of columns
+	 * 
+	 * @param dictionary the rules to generate with
+	 * @param numColumns the number of Cells in each Row
+	 */
+	public HashLifeEngine(Dictionary dictionary, int numColumns)
+	{
+		super(dictionary, numColumns);
+		
+		radix = dictionary.getRadix();
+		patternSize = dictionary.getPatternSize();
+		leftRadius = patternSize / 2;
+		
+		NULL = dictionary.getAlphabet().getNULLordinal();
+		
+		if(NULL < 0)
+			throw new IllegalStateException("Error, NULL has not been set in the Alphabet of " + dictionary);
+		
+		wall = radix;
+		
+		//the middle half of a base node has to be at least the larger radius of a pattern from its ends
+		int radius = Math.max(1, Math.max(leftRadius, patternSize - 1 - leftRadius));
+		baseLevel = 2;
+		while((1 << (baseLevel - 2)) < radius)
+			baseLevel++;
+		
+		rowLevel = 0;
+		while((1L << rowLevel) < numColumns)
+			rowLevel++;
+		
+		setNumThreads(1);
+		
+		ordinals = new int[numColumns];
+		
+		clear();
+	}
+	
+	/**
+	 * Sets the number of threads generating at once, each with a HashLifeEngine of its own,
+	 * which share the heap between their nodes
+	 * 
+	 * @param numThreads the number of threads generating at once, at least 1
+	 */
+	void setNumThreads(int numThreads)
+	{
+		long share = (long) (Runtime.getRuntime().maxMemory() * heapShare) / Math.max(1, numThreads);
+		
+		nodeLimit = (int) Math.min(Integer.MAX_VALUE, share / bytesPerNode);
+	}
+	
+	/**
+	 * Forgets every node
+	 */
+	private void clear()
+	{
+		table = new Node[1 << 12];
+		numNodes = 0;
+		nextId = 0;
+		
+		walls = new Node[128];
+		walls[0] = getLeaf(wall);
+		for(int level = 1; level < walls.length; level++)
+			walls[level] = join(walls[level - 1], walls[level - 1]);
+	}
+	
+	private Node getLeaf(int ordinal)
+	{
+		Node leaf = find(null, null, ordinal);
+		
+		if(leaf == null)
+		{
+			leaf = new Node();
+			leaf.ordinal = ordinal;
+			add(leaf);
+		}
+		
+		return leaf;
+	}
+	
+	/**
+	 * Gets the node made of two nodes of the same level
+	 * 
+	 * @param left the left half of the node
+	 * @param right the right half of the node
+	 * @return the only node with the specified halves
+	 */
+	private Node join(Node left, Node right)
+	{
+		Node node = find(left, right, -1);
+		
+		if(node == null)
+		{
+			if(numNodes >= nodeLimit)
+				throw new TooManyNodesException();
+			
+			node = new Node();
+			node.level = left.level + 1;
+			node.ordinal = -1;
+			node.left = left;
+			node.right = right;
+			add(node);
+		}
+		
+		return node;
+	}
+	
+	private int hash(Node left, Node right, int ordinal)
+	{
+		int hash = left == null ? ordinal : left.id * 0x9E3779B1 + right.id;
+		
+		return (hash ^ (hash >>> 15)) & (table.length - 1);
+	}
+	
+	private Node find(Node left, Node right, int ordinal)
+	{
+		for(Node node = table[hash(left, right, ordinal)]; node != null; node = node.next)
+			if(node.left == left && node.right == right && node.ordinal == ordinal)
+				return node;
+		
+		return null;
+	}
+	
+	private void add(Node node)
+	{
+		node.id = nextId++;
+		
+		int slot = hash(node.left, node.right, node.ordinal);
+		node.next = table[slot];
+		table[slot] = node;
+		numNodes++;
+		numCreated++;
+		
+		if(numNodes > table.length)
+			resize();
+	}
+	
+	private void resize()
+	{
+		Node[] old = table;
+		table = new Node[old.length * 2];
+		
+		for(Node chain : old)
+		{
+			while(chain != null)
+			{
+				Node next = chain.next;
+				int slot = hash(chain.left, chain.right, chain.ordinal);
+				chain.next = table[slot];
+				table[slot] = chain;
+				chain = next;
+			}
+		}
+	}
+	
+	/**
+	 * Builds the node of level rowLevel holding the ordinals of the current Row, followed by wall Cells
+	 * 
+	 * @param from the column of the first Cell of the node
+	 * @param level the level of the node
+	 * @return the node holding the Cells from column from
+	 */
+	private Node build(int from, int level)
+	{
+		if(from >= numColumns)
+			return walls[level];
+		
+		if(level == 0)
+			return getLeaf(ordinals[from]);
+		
+		return join(build(from, level - 1), build(from + (1 << (level - 1)), level - 1));
+	}
+	
+	/**
+	 * Copies the Cells of a node that lie inside of the Row into ordinals
+	 * 
+	 * @param node the node to copy
+	 * @param from the column of the first Cell of the node
+	 */
+	private void flatten(Node node, int from)
+	{
+		if(from >= numColumns)
+			return;
+		
+		if(node.level == 0)
+			ordinals[from] = node.ordinal;
+		else
+		{
+			flatten(node.left, from);
+			flatten(node.right, from + (1 << (node.level - 1)));
+		}
+	}
+	
+	/**
+	 * Gets the middle half of a node without advancing it
+	 */
+	private Node center(Node node)
+	{
+		return join(node.left.right, node.right.left);
+	}
+	
+	/**
+	 * Gets the middle half of a node advanced by 2^j generations, or by none when j is -1
+	 * 
+	 * @param node a node of at least baseLevel
+	 * @param j the log base 2 of the number of generations, at most node.level - baseLevel
+	 * @return the middle half of the node advanced by 2^j generations
+	 */
+	private Node advance(Node node, int j)
+	{
+		if(j < 0)
+			return center(node);
+		
+		if(node.results != null && node.results[j] != null)
+			return node.results[j];
+		
+		Node result;
+		if(node.level == baseLevel)
+			result = step(node);
+		else
+		{
+			Node q0 = node.left.left;
+			Node q1 = node.left.right;
+			Node q2 = node.right.left;
+			Node q3 = node.right.right;
+			
+			//the first half of the generations is taken by three overlapping nodes of the level
+			//below, and the rest by two nodes built from their results
+			int first = Math.min(j, node.level - 1 - baseLevel);
+			int second = j > first ? first : -1;
+			
+			Node r0 = advance(join(q0, q1), first);
+			Node r1 = advance(join(q1, q2), first);
+			Node r2 = advance(join(q2, q3), first);
+			
+			result = join(advance(join(r0, r1), second), advance(join(r1, r2), second));
+		}
+		
+		if(node.results == null)
+			node.results = new Node[node.level - baseLevel + 1];
+		node.results[j] = result;
+		
+		return result;
+	}
+	
+	/**
+	 * Generates the middle half of a node of baseLevel one Cell at a time, one generation ahead
+	 * 
+	 * @param node a node of baseLevel
+	 * @return the middle half of the node one generation later
+	 */
+	private Node step(Node node)
+	{
+		int width = 1 << node.level;
+		int[] cells = new int[width];
+		collect(node, cells, 0);
+		
+		Node[] generated = new Node[width / 2];
+		for(int i = 0; i < generated.length; i++)
+		{
+			int col = width / 4 + i;
+			
+			if(cells[col] == wall)
+				generated[i] = walls[0];
+			else
+			{
+				int index = 0;
+				for(int c = col - leftRadius; c < col - leftRadius + patternSize; c++)
+					index = index * radix + (cells[c] == wall ? NULL : cells[c]);
+				
+				generated[i] = getLeaf(getOutput(index, NULL));
+			}
+		}
+		
+		for(int length = generated.length; length > 1; length /= 2)
+			for(int i = 0; i < length / 2; i++)
+				generated[i] = join(generated[2 * i], generated[2 * i + 1]);
+		
+		return generated[0];
+	}
+	
+	private static void collect(Node node, int[] cells, int from)
+	{
+		if(node.level == 0)
+			cells[from] = node.ordinal;
+		else
+		{
+			collect(node.left, cells, from);
+			collect(node.right, cells, from + (1 << (node.level - 1)));
+		}
+	}
+	
+	/**
+	 * Forgets every node but the ones of the current Row
+	 */
+	private void rebuild()
+	{
+		flatten(row, 0);
+		clear();
+		row = build(0, rowLevel);
+	}
+	
+	/**
+	 * Advances the current Row by 2^j generations, starting over with fewer generations
+	 * at a time if there are too many nodes
+	 * 
+	 * @param j the log base 2 of the number of generations
+	 */
+	private void advanceRow(int j)
+	{
+		//the nodes of earlier generations are forgotten once they take up half of the limit
+		if(numNodes > nodeLimit / 2)
+			rebuild();
+		
+		try
+		{
+			//the Row is the start of the middle half of a node large enough to advance 2^j generations
+			int level = Math.max(rowLevel + 2, baseLevel + j);
+			
+			Node middle = row;
+			for(int i = rowLevel; i < level - 1; i++)
+				middle = join(middle, walls[i]);
+			
+			Node root = join(join(walls[level - 2], middle.left), join(middle.right, walls[level - 2]));
+			
+			Node result = advance(root, j);
+			while(result.level > rowLevel)
+				result = result.left;
+			
+			row = result;
+		}
+		catch(TooManyNodesException ex)
+		{
+			rebuild();
+			
+			if(j == 0)
+				throw new IllegalStateException("Error, a single generation of " + numColumns + " Cells needs more than " + nodeLimit / 2 + " nodes");
+			
+			advanceRow(j - 1);
+			advanceRow(j - 1);
+		}
+	}
+	
+	public void load(Row startingRow)
+	{
+		for(int col = 0; col < numColumns; col++)
+		{
+			Cell cell = startingRow.get(col);
+			ordinals[col] = cell == null ? NULL : cell.ordinal;
+		}
+		
+		if(stepper != null)
+			clear();
+		stepper = null;
+		
+		row = build(0, rowLevel);
+		
+		numCreated = 0;
+		numGenerations = 0;
+	}
+	
+	/**
+	 * Hands the current Row over to a step by step Engine, and forgets every node
+	 */
+	private void startStepping()
+	{
+		flatten(row, 0);
+		
+		Alphabet alphabet = dictionary.getAlphabet();
+		Cell[] cells = new Cell[numColumns];
+		for(int col = 0; col < numColumns; col++)
+			cells[col] = alphabet.get(ordinals[col]);
+		
+		stepper = Engine.create(dictionary, numColumns);
+		stepper.load(new Row(cells, patternSize));
+		
+		table = null;
+		walls = null;
+		row = null;
+	}
+	
+	public void step()
+	{
+		advance(1);
+	}
+	
+	public void advance(long generations)
+	{
+		if(stepper != null)
+		{
+			stepper.advance(generations);
+			return;
+		}
+		
+		for(int j = 62; j >= 0; j--)
+			if((generations >>> j & 1) != 0)
+				advanceRow(j);
+		
+		numGenerations += generations;
+		
+		//the first nodes are made for any rule, so it is only judged once they outnumber the Cells of a few Rows
+		if(numCreated > 4L << rowLevel && (double) numCreated * cellsPerNode > (double) numGenerations * numColumns)
+			startStepping();
+	}
+	
+	public void store(CellGrid grid, int gridRow)
+	{
+		if(stepper != null)
+		{
+			stepper.store(grid, gridRow);
+			return;
+		}
+		
+		flatten(row, 0);
+		grid.setRow(gridRow, ordinals, 0);
+	}
+	
+	public void store(int[] ordinals)
+	{
+		if(stepper != null)
+		{
+			stepper.store(ordinals);
+			return;
+		}
+		
+		flatten(row, 0);
+		System.arraycopy(this.ordinals, 0, ordinals, 0, numColumns);
+	}
+}
@@ -0,0 +1,544 @@
+package cellularautomaton;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * class PNGWriter to encode a CellularAutomaton as a ".png" image one Row at a time,
+ * so that only the Row being written has to be kept in memory. When the Alphabet
+ * has at most 256 Cells the image uses indexed color, with a palette made from the
+ * rgbValues of the Cells and as few bits per pixel as the Alphabet allows, otherwise
+ * each pixel is written as 8 bit RGB.
+ * <br><br>
+ * The image data is split into blocks that are compressed independently, each primed
+ * with the end of the block before it so little compression is lost, and joined into
+ * a single zlib stream. The blocks can then be compressed on several cores at once.
+ */
+public class PNGWriter implements RowSink, Closeable
+{
+	private static final byte[] signature = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+	
+	/**
+	 * the largest amount of compressed data written in a single IDAT chunk
+	 */
+	private static final int chunkSize = 1 << 16;
+	
+	/**
+	 * the amount of image data compressed by each task
+	 */
+	private static final int blockSize = 1 << 17;
+	
+	/**
+	 * the size of the window deflate can refer back to, and so of the
+	 * dictionary each block is primed with
+	 */
+	private static final int windowSize = 1 << 15;
+	
+	private DataOutputStream out;
+	private ChunkOutputStream idat;
+	
+	private int width;
+	private int height;
+	private int rowsWritten;
+	
+	private int[] palette;
+	private int bitDepth;
+	private boolean indexed;
+	
+	private int level;
+	private int parallelism;
+	
+	/**
+	 * a single filtered row of the image, the filter type followed by the packed pixels
+	 */
+	private byte[] scanline;
+	
+	/**
+	 * the image data that has not been handed off to be compressed yet
+	 */
+	private byte[] block;
+	private int blockLength;
+	
+	/**
+	 * the last windowSize bytes of image data handed off to be compressed
+	 */
+	private byte[] window;
+	
+	private Adler32 adler;
+	
+	/**
+	 * the blocks being compressed, in the order they will be written
+	 */
+	private ArrayDeque<Future<byte[]>> pending;
+	
+	/**
+	 * Creates a PNGWriter that writes an image of the specified dimensions to a file
+	 * 
+	 * @param file the file to write the image to
+	 * @param alphabet the Alphabet of the Cells in the image
+	 * @param width the number of Cells in each Row
+	 * @param height the number of Rows in the image
+	 * @throws IOException if there is a problem creating or writing to the file
+	 */
+	public PNGWriter(File file, Alphabet alphabet, int width, int height) throws IOException
+	{
+		this(new FileOutputStream(file), alphabet, width, height, Deflater.DEFAULT_COMPRESSION, 1);
+	}
+	
+	/**
+	 * Creates a PNGWriter that writes an image of the specified dimensions to a file
+	 * 
+	 * @param file the file to write the image to
+	 * @param alphabet the Alphabet of the Cells in the image
+	 * @param width the number of Cells in each Row
+	 * @param height the number of Rows in the image
+	 * @param level the compression level, from 0 to 9
+	 * @param parallelism the number of blocks to compress at once
+	 * @throws IOException if there is a problem creating or writing to the file
+	 */
+	public PNGWriter(File file, Alphabet alphabet, int width, int height, int level, int parallelism) throws IOException
+	{
+		this(new FileOutputStream(file), alphabet, width, height, level, parallelism);
+	}
+	
+	/**
+	 * Creates a PNGWriter that writes an image of the specified dimensions to a stream
+	 * 
+	 * @param stream the stream to write the image to, closed along with this PNGWriter
+	 * @param alphabet the Alphabet of the Cells in the image
+	 * @param width the number of Cells in each Row
+	 * @param height the number of Rows in the image
+	 * @param level the compression level, from 0 to 9
+	 * @param parallelism the number of blocks to compress at once, with 1 compressing
+	 * every block on the thread writing the Rows
+	 * @throws IOException if there is a problem writing to the stream
+	 */
+	public PNGWriter(OutputStream stream, Alphabet alphabet, int width, int height, int level, int parallelism) throws IOException
+	{
+		this.width = width;
+		this.height = height;
+		this.level = level;
+		this.parallelism = Math.max(1, parallelism);
+		
+		palette = alphabet.getPalette();
+		indexed = palette.length <= 256;
+		
+		if(!indexed)
+			bitDepth = 8;
+		else if(palette.length <= 2)
+			bitDepth = 1;
+		else if(palette.length <= 4)
+			bitDepth = 2;
+		else if(palette.length <= 16)
+			bitDepth = 4;
+		else
+			bitDepth = 8;
+		
+		int bitsPerPixel = indexed ? bitDepth : 3 * bitDepth;
+		scanline = new byte[1 + (int) (((long) width * bitsPerPixel + 7) / 8)];
+		
+		block = new byte[blockSize];
+		blockLength = 0;
+		adler = new Adler32();
+		pending = new ArrayDeque<Future<byte[]>>();
+		
+		out = new DataOutputStream(new BufferedOutputStream(stream, chunkSize));
+		out.write(signature);
+		writeHeader();
+		
+		idat = new ChunkOutputStream();
+		writeZlibHeader();
+	}
+	
+	/**
+	 * Writes every Row of a CellGrid to an image file
+	 * 
+	 * @param grid the CellGrid to write
+	 * @param file the file to write the image to
+	 * @param level the compression level, from 0 to 9
+	 * @param parallelism the number of blocks to compress at once
+	 * @throws IOException if there is a problem writing the image
+	 */
+	public static void write(CellGrid grid, File file, int level, int parallelism) throws IOException
+	{
+		int[] ordinals = new int[grid.getNumColumns()];
+		
+		try(PNGWriter writer = new PNGWriter(file, grid.getAlphabet(), grid.getNumColumns(), grid.getNumRows(), level, parallelism))
+		{
+			for(int row = 0; row < grid.getNumRows(); row++)
+			{
+				grid.getOrdinals(row, ordinals);
+				writer.write(ordinals);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the IHDR chunk, and the PLTE chunk if the image uses indexed color
+	 * 
+	 * @throws IOException if there is a problem writing the chunks
+	 */
+	private void writeHeader() throws IOException
+	{
+		byte[] header = new byte[13];
+		putInt(header, 0, width);
+		putInt(header, 4, height);
+		header[8] = (byte) bitDepth;
+		header[9] = (byte) (indexed ? 3 : 2);
+		//compression, filter, and interlace methods are all 0
+		writeChunk("IHDR", header, header.length);
+		
+		if(indexed)
+		{
+			byte[] plte = new byte[3 * palette.length];
+			
+			for(int i = 0; i < palette.length; i++)
+			{
+				plte[3 * i] = (byte) (palette[i] >>> 16);
+				plte[3 * i + 1] = (byte) (palette[i] >>> 8);
+				plte[3 * i + 2] = (byte) palette[i];
+			}
+			
+			writeChunk("PLTE", plte, plte.length);
+		}
+	}
+	
+	/**
+	 * Writes the two byte header of the zlib stream holding the image data
+	 * 
+	 * @throws IOException if there is a problem writing the header
+	 */
+	private void writeZlibHeader() throws IOException
+	{
+		//deflate with a 32K window
+		int cmf = 0x78;
+		
+		int flevel = 2;
+		if(level == 0 || level == 1)
+			flevel = 0;
+		else if(2 <= level && level <= 5)
+			flevel = 1;
+		else if(level >= 7)
+			flevel = 3;
+		
+		int flg = flevel << 6;
+		flg += (31 - (cmf * 256 + flg) % 31) % 31;
+		
+		idat.write(cmf);
+		idat.write(flg);
+	}
+	
+	public void write(int[] ordinals) throws IOException
+	{
+		if(rowsWritten == height)
+			throw new IOException("Error, more than the " + height + " Rows of this image were written");
+		
+		if(indexed)
+			packIndexed(ordinals);
+		else
+			packRGB(ordinals);
+		
+		adler.update(scanline);
+		
+		for(int off = 0; off < scanline.length; )
+		{
+			int n = Math.min(scanline.length - off, block.length - blockLength);
+			System.arraycopy(scanline, off, block, blockLength, n);
+			blockLength += n;
+			off += n;
+			
+			if(blockLength == block.length)
+				submitBlock(false);
+		}
+		
+		rowsWritten++;
+	}
+	
+	/**
+	 * Packs a Row of palette indices into scanline, most significant bits first
+	 * 
+	 * @param ordinals the ordinals of the Cells in the Row
+	 */
+	private void packIndexed(int[] ordinals)
+	{
+		int pixelsPerByte = 8 / bitDepth;
+		
+		for(int i = 1, col = 0; col < width; i++)
+		{
+			int packed = 0;
+			
+			for(int p = 0; p < pixelsPerByte; p++, col++)
+			{
+				packed <<= bitDepth;
+				
+				if(col < width)
+					packed |= ordinals[col];
+			}
+			
+			scanline[i] = (byte) packed;
+		}
+	}
+	
+	/**
+	 * Packs a Row of RGB pixels into scanline
+	 * 
+	 * @param ordinals the ordinals of the Cells in the Row
+	 */
+	private void packRGB(int[] ordinals)
+	{
+		for(int col = 0; col < width; col++)
+		{
+			int rgb = palette[ordinals[col]];
+			
+			scanline[1 + 3 * col] = (byte) (rgb >>> 16);
+			scanline[2 + 3 * col] = (byte) (rgb >>> 8);
+			scanline[3 + 3 * col] = (byte) rgb;
+		}
+	}
+	
+	/**
+	 * Hands the current block off to be compressed, writing out finished blocks
+	 * while too many are still being compressed
+	 * 
+	 * @param last true if this is the final block of the image
+	 * @throws IOException if there is a problem compressing or writing a block
+	 */
+	private void submitBlock(boolean last) throws IOException
+	{
+		byte[] data = Arrays.copyOf(block, blockLength);
+		byte[] primer = window;
+		
+		BlockCompressor compressor = new BlockCompressor(data, primer, level, last);
+		
+		if(parallelism == 1)
+			idat.write(compressor.call());
+		else
+		{
+			pending.add(ForkJoinPool.commonPool().submit(compressor));
+			
+			while(pending.size() > 2 * parallelism)
+				writePending();
+		}
+		
+		//the next block may refer back to the end of this one
+		if(blockLength >= windowSize)
+			window = Arrays.copyOfRange(block, blockLength - windowSize, blockLength);
+		else if(primer == null)
+			window = data;
+		else
+		{
+			int keep = Math.min(primer.length, windowSize - blockLength);
+			window = new byte[keep + blockLength];
+			System.arraycopy(primer, primer.length - keep, window, 0, keep);
+			System.arraycopy(data, 0, window, keep, blockLength);
+		}
+		
+		blockLength = 0;
+	}
+	
+	/**
+	 * Waits for the oldest block being compressed and writes it
+	 * 
+	 * @throws IOException if there is a problem compressing or writing the block
+	 */
+	private void writePending() throws IOException
+	{
+		try
+		{
+			idat.write(pending.remove().get());
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException(ex);
+		}
+		catch(ExecutionException ex)
+		{
+			throw new IOException(ex.getCause());
+		}
+	}
+	
+	/**
+	 * Finishes the image and closes the underlying stream
+	 * 
+	 * @throws IOException if fewer Rows were written than the height of the
+	 * image, or there is a problem writing to the stream
+	 */
+	public void close() throws IOException
+	{
+		try
+		{
+			if(rowsWritten != height)
+				throw new IOException("Error, only " + rowsWritten + " of the " + height + " Rows of this image were written");
+			
+			submitBlock(true);
+			
+			while(!pending.isEmpty())
+				writePending();
+			
+			int checksum = (int) adler.getValue();
+			idat.write(checksum >>> 24);
+			idat.write(checksum >>> 16);
+			idat.write(checksum >>> 8);
+			idat.write(checksum);
+			idat.close();
+			
+			writeChunk("IEND", new byte[0], 0);
+		}
+		finally
+		{
+			for(Future<byte[]> future : pending)
+				future.cancel(false);
+			
+			out.close();
+		}
+	}
+	
+	/**
+	 * Writes a chunk with the specified type and data
+	 * 
+	 * @param type the four letter type of the chunk
+	 * @param data the array holding the data of the chunk
+	 * @param length the number of bytes of data
+	 * @throws IOException if there is a problem writing the chunk
+	 */
+	private void writeChunk(String type, byte[] data, int length) throws IOException
+	{
+		byte[] typeBytes = type.getBytes("US-ASCII");
+		
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+	
+	private static void putInt(byte[] array, int offset, int value)
+	{
+		array[offset] = (byte) (value >>> 24);
+		array[offset + 1] = (byte) (value >>> 16);
+		array[offset + 2] = (byte) (value >>> 8);
+		array[offset + 3] = (byte) value;
+	}
+	
+	/**
+	 * class BlockCompressor to compress one block of image data into raw deflate data.
+	 * Every block but the last ends on a byte boundary with an empty stored block, so
+	 * the compressed blocks can be joined one after another into a single stream.
+	 */
+	private static class BlockCompressor implements Callable<byte[]>
+	{
+		private byte[] data;
+		private byte[] primer;
+		private int level;
+		private boolean last;
+		
+		public BlockCompressor(byte[] data, byte[] primer, int level, boolean last)
+		{
+			this.data = data;
+			this.primer = primer;
+			this.level = level;
+			this.last = last;
+		}
+		
+		public byte[] call()
+		{
+			Deflater deflater = new Deflater(level, true);
+			
+			try
+			{
+				if(primer != null)
+					deflater.setDictionary(primer);
+				
+				deflater.setInput(data);
+				
+				if(last)
+					deflater.finish();
+				
+				byte[] output = new byte[data.length / 2 + 64];
+				int length = 0;
+				
+				while(true)
+				{
+					if(length == output.length)
+						output = Arrays.copyOf(output, output.length * 2);
+					
+					int n = deflater.deflate(output, length, output.length - length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+					length += n;
+					
+					if(last ? deflater.finished() : length < output.length)
+						break;
+				}
+				
+				return Arrays.copyOf(output, length);
+			}
+			finally
+			{
+				deflater.end();
+			}
+		}
+	}
+	
+	/**
+	 * class ChunkOutputStream to split the compressed image data into IDAT chunks
+	 */
+	private class ChunkOutputStream extends OutputStream
+	{
+		private byte[] buffer = new byte[chunkSize];
+		private int count = 0;
+		
+		public void write(int b) throws IOException
+		{
+			if(count == buffer.length)
+				flushChunk();
+			
+			buffer[count] = (byte) b;
+			count++;
+		}
+		
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			while(len > 0)
+			{
+				if(count == buffer.length)
+					flushChunk();
+				
+				int n = Math.min(len, buffer.length - count);
+				System.arraycopy(b, off, buffer, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+		
+		private void flushChunk() throws IOException
+		{
+			if(count > 0)
+				writeChunk("IDAT", buffer, count);
+			
+			count = 0;
+		}
+		
+		public void close() throws IOException
+		{
+			flushChunk();
+		}
+	}
+}
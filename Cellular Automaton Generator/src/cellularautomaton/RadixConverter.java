@@ -0,0 +1,290 @@
+package cellularautomaton;
+
+import java.math.BigInteger;
+
+/**
+ * class RadixConverter to convert between rule numbers and their digits in the radix of an
+ * Alphabet, least significant digit first, the way the outputs of a rule are numbered.
+ * <br><br>
+ * Taking one digit at a time off of a number with a division is quadratic in the length of
+ * the number, so a radix that is a power of two reads its digits straight from the bits of
+ * the number, and any other radix splits the number in half with a single division by a power
+ * of the radix, and converts each half on its own. The powers of the radix the halves are split
+ * at are computed the first time a number needs them, and kept, so a RadixConverter for numbers
+ * with billions of digits only holds powers as large as the numbers it has converted. A number
+ * too small to reach the upper half of its digits is not divided at all, and its upper digits
+ * are written as zeros. A RadixConverter can be shared between threads.
+ */
+public class RadixConverter
+{
+	private int radix;
+	private int numDigits;
+	
+	/**
+	 * the number of bits in each digit when the radix is a power of two, or 0 when it is not
+	 */
+	private int bitsPerDigit;
+	
+	/**
+	 * the most digits that fit in a long, below which numbers are converted with longs
+	 */
+	private int digitsPerLong;
+	
+	/**
+	 * the largest number of bits every digit can hold, floor(log2(radix))
+	 */
+	private int minBitsPerDigit;
+	
+	/**
+	 * the radix raised to 2^k, indexed by k, null until it is needed
+	 */
+	private BigInteger[] powers;
+	
+	/**
+	 * interface DigitWriter to receive the digits of a number wherever they are kept
+	 */
+	interface DigitWriter
+	{
+		/**
+		 * Sets a digit of the number
+		 * 
+		 * @param i the index of the digit, 0 for the least significant digit
+		 * @param digit the digit
+		 */
+		void set(int i, int digit);
+	}
+	
+	/**
+	 * Creates a RadixConverter for numbers with up to the specified number of digits in a radix
+	 * 
+	 * @param radix the radix of the digits, at least 2
+	 * @param numDigits the number of digits of each number
+	 */
+	public RadixConverter(int radix, int numDigits)
+	{
+		if(radix < 2)
+			throw new IllegalArgumentException("Error, a radix has to be at least 2, got " + radix);
+		
+		this.radix = radix;
+		this.numDigits = numDigits;
+		
+		if(Integer.bitCount(radix) == 1)
+			bitsPerDigit = Integer.numberOfTrailingZeros(radix);
+		
+		minBitsPerDigit = 31 - Integer.numberOfLeadingZeros(radix);
+		
+		digitsPerLong = 0;
+		for(long max = Long.MAX_VALUE; max >= radix; max /= radix)
+			digitsPerLong++;
+		
+		int numPowers = 1;
+		while((1L << numPowers) < numDigits)
+			numPowers++;
+		
+		powers = new BigInteger[numPowers];
+	}
+	
+	/**
+	 * Gets the radix raised to 2^k, computing it and the powers below it the first time
+	 * 
+	 * @param k the index of the power
+	 * @return radix^(2^k)
+	 */
+	private synchronized BigInteger getPower(int k)
+	{
+		if(powers[k] == null)
+			powers[k] = k == 0 ? BigInteger.valueOf(radix) : getPower(k - 1).multiply(getPower(k - 1));
+		
+		return powers[k];
+	}
+	
+	/**
+	 * Writes the digits of a number into an array, least significant digit first
+	 * 
+	 * @param n the number to convert, at least 0
+	 * @param digits the array to write the digits to, at least numDigits long
+	 * @throws IllegalArgumentException if the number is negative or has more than numDigits digits
+	 */
+	public void toDigits(BigInteger n, int[] digits)
+	{
+		toDigits(n, (i, digit) -> digits[i] = digit);
+	}
+	
+	/**
+	 * Writes the digits of a number to a DigitWriter, least significant digit first, every digit is written once
+	 * 
+	 * @param n the number to convert, at least 0
+	 * @param digits the DigitWriter to write numDigits digits to
+	 * @throws IllegalArgumentException if the number is negative or has more than numDigits digits
+	 */
+	void toDigits(BigInteger n, DigitWriter digits)
+	{
+		if(n.signum() < 0)
+			throw new IllegalArgumentException("Error, the rule number " + n + " is negative");
+		
+		if(bitsPerDigit > 0)
+		{
+			if(n.bitLength() > (long) bitsPerDigit * numDigits)
+				throw tooLarge();
+			
+			byte[] bytes = n.toByteArray();
+			
+			for(int i = 0; i < numDigits; i++)
+				digits.set(i, getBits(bytes, i * bitsPerDigit, bitsPerDigit));
+		}
+		else
+			toDigits(n, digits, 0, numDigits);
+	}
+	
+	/**
+	 * Writes the digits of a number into an array, least significant digit first
+	 * 
+	 * @param n the number to convert, at least 0
+	 * @param digits the array to write the digits to, at least numDigits long
+	 * @throws IllegalArgumentException if the number is negative or has more than numDigits digits
+	 */
+	public void toDigits(long n, int[] digits)
+	{
+		if(n < 0)
+			throw new IllegalArgumentException("Error, the rule number " + n + " is negative");
+		
+		toDigits(n, (i, digit) -> digits[i] = digit, 0, numDigits);
+	}
+	
+	/**
+	 * Splits a number in half at the largest power of two digits below count, until it fits in a long
+	 * 
+	 * @param n the number to convert
+	 * @param digits the DigitWriter to write the digits to
+	 * @param from the index of the least significant digit of the number
+	 * @param count the number of digits the number has to fit in
+	 */
+	private void toDigits(BigInteger n, DigitWriter digits, int from, int count)
+	{
+		if(n.bitLength() < 63)
+		{
+			toDigits(n.longValue(), digits, from, count);
+			return;
+		}
+		
+		if(count == 1)
+			throw tooLarge();
+		
+		int half = Integer.highestOneBit(count - 1);
+		
+		//a number below 2^(half * minBitsPerDigit) is below radix^half, so its upper digits are all zero
+		if(n.bitLength() <= (long) half * minBitsPerDigit)
+		{
+			toDigits(n, digits, from, half);
+			
+			for(int i = from + half; i < from + count; i++)
+				digits.set(i, 0);
+			
+			return;
+		}
+		
+		BigInteger[] split = n.divideAndRemainder(getPower(Integer.numberOfTrailingZeros(half)));
+		
+		toDigits(split[1], digits, from, half);
+		toDigits(split[0], digits, from + half, count - half);
+	}
+	
+	private void toDigits(long n, DigitWriter digits, int from, int count)
+	{
+		if(bitsPerDigit > 0)
+		{
+			int mask = radix - 1;
+			
+			for(int i = from; i < from + count; i++)
+			{
+				digits.set(i, (int) n & mask);
+				n >>>= bitsPerDigit;
+			}
+		}
+		else
+		{
+			for(int i = from; i < from + count; i++)
+			{
+				digits.set(i, (int) (n % radix));
+				n /= radix;
+			}
+		}
+		
+		if(n != 0)
+			throw tooLarge();
+	}
+	
+	/**
+	 * Gets the bits of a number from its big endian bytes
+	 * 
+	 * @param bytes the bytes of the number, as given by BigInteger.toByteArray
+	 * @param from the index of the lowest bit to get
+	 * @param count the number of bits to get
+	 * @return the bits, the lowest bit first
+	 */
+	private static int getBits(byte[] bytes, int from, int count)
+	{
+		int bits = 0;
+		
+		for(int b = 0; b < count; b++)
+		{
+			int index = bytes.length - 1 - (from + b) / 8;
+			
+			if(index >= 0)
+				bits |= ((bytes[index] >>> ((from + b) % 8)) & 1) << b;
+		}
+		
+		return bits;
+	}
+	
+	/**
+	 * Gets the number with the specified digits
+	 * 
+	 * @param digits the digits of the number, least significant digit first, at least numDigits long
+	 * @return the number
+	 */
+	public BigInteger toNumber(int[] digits)
+	{
+		//the zeros above the most significant digit that is not zero add nothing, and need no powers
+		int count = numDigits;
+		while(count > 0 && digits[count - 1] == 0)
+			count--;
+		
+		return toNumber(digits, 0, count);
+	}
+	
+	/**
+	 * Joins the numbers of the lower and upper digits, splitting at the largest power of two digits below count
+	 * 
+	 * @param digits the digits of the number
+	 * @param from the index of the least significant digit
+	 * @param count the number of digits
+	 * @return the number
+	 */
+	private BigInteger toNumber(int[] digits, int from, int count)
+	{
+		if(count <= digitsPerLong)
+		{
+			long n = 0;
+			
+			for(int i = from + count - 1; i >= from; i--)
+				n = n * radix + digits[i];
+			
+			return BigInteger.valueOf(n);
+		}
+		
+		int half = Integer.highestOneBit(count - 1);
+		BigInteger low = toNumber(digits, from, half);
+		BigInteger high = toNumber(digits, from + half, count - half);
+		
+		if(bitsPerDigit > 0)
+			return high.shiftLeft(half * bitsPerDigit).or(low);
+		
+		return high.multiply(getPower(Integer.numberOfTrailingZeros(half))).add(low);
+	}
+	
+	private IllegalArgumentException tooLarge()
+	{
+		return new IllegalArgumentException("Error, the rule number has more than " + numDigits + " digits in radix " + radix);
+	}
+}
@@ -14,6 +14,12 @@ public class Row implements Iterable<Cell[]>
 	private Cell[] cells;
 	private int patternSize;
 	
+	/**
+	 * the Generator of the last Row generated on each thread, reused while the Dictionary and
+	 * number of columns stay the same, the way Engine.reuse reuses an Engine
+	 */
+	private static final ThreadLocal<Generator> generators = new ThreadLocal<Generator>();
+	
 	/**
 	 * Creates a Row with specified Cells, and patternSize to use when generating a new Row
 	 * 
@@ -58,39 +64,38 @@ public class Row implements Iterable<Cell[]>
 	 * rules defined in the given dictionary
 	 */
 	public static Row generate(Row parent, Dictionary dictionary)
-	{		
-		Row generatedRow = new Row(parent.size(), parent.patternSize);
-		
-		//the current index of the Cell being generated in the generatedRow
-		int i = 0;
-		
-		//uses custom iterator for the class Row to get the pattern at the current index  
-		for(Cell[] pattern : parent)
-		{
-			//replaces nulls obtained from out of bounds index (if any), with the fake NULL value
-			//specified by the alphabet that was used to generate the rules in the provided dictionary
-			replaceNULL(pattern, dictionary.getNULL());
-			
-			//gets the output that the current pattern maps to as specified by the provided dictionary
-			generatedRow.set(i, dictionary.getOutput(pattern));
-			
-			i++;
-		}
-		
-		return generatedRow;
+	{
+		return generate(parent, dictionary, new Row(parent.size(), parent.patternSize));
 	}
 	
 	/**
-	 * Replaces null values in a pattern with the specified Cell newNULL
+	 * Given a parent row and a dictionary of rules, generates the Row below the parent
+	 * row into the specified Row, so generating Row after Row allocates nothing
 	 * 
-	 * @param pattern the pattern of Cells to replace the null values of
-	 * @param newNULL the Cell to replace the null values with
+	 * @param parent the parent row of the Row to generate
+	 * @param dictionary the dictionary of rules to base the generated row on
+	 * @param child the Row to write the generated Cells to, the same size as the parent row and not the parent row
+	 * @return the child Row
 	 */
-	private static void replaceNULL(Cell[] pattern, Cell newNULL)
+	public static Row generate(Row parent, Dictionary dictionary, Row child)
 	{
-		for(int i = 0; i < pattern.length; i++)
-			if(pattern[i] == null)
-				pattern[i] = newNULL;
+		int numColumns = parent.size();
+		Generator generator = generators.get();
+		
+		if(generator == null || generator.dictionary != dictionary || generator.numColumns != numColumns)
+		{
+			generator = dictionary.getRuleMode() == RuleMode.PATTERN ? new Generator(dictionary, numColumns)
+					: new TotalisticEngine(dictionary, numColumns);
+			generators.set(generator);
+		}
+		else
+			generator.refresh();
+		
+		generator.load(parent);
+		generator.step();
+		generator.store(child);
+		
+		return child;
 	}
 	
 	/**
@@ -169,9 +174,9 @@ public class Row implements Iterable<Cell[]>
 		
 		public boolean hasNext()
 		{
-			return centerIndex < cells.length;
+			return centerIndex < size();
 		}
-
+		
 		public Cell[] next()
 		{
 			Cell[] next = new Cell[patternSize];
@@ -195,8 +200,8 @@ public class Row implements Iterable<Cell[]>
 	{
 		String str = "";
 		
-		for(Cell cell : cells)
-			str += cell + " ";
+		for(int i = 0; i < size(); i++)
+			str += get(i) + " ";
 		
 		return str;
 	}
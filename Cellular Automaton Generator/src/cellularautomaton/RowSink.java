@@ -0,0 +1,18 @@
+package cellularautomaton;
+
+import java.io.IOException;
+
+/**
+ * interface RowSink for anything that consumes the Rows of a CellularAutomaton
+ * one at a time, in order, as they are generated
+ */
+public interface RowSink
+{
+	/**
+	 * Consumes the next Row of a CellularAutomaton
+	 * 
+	 * @param ordinals the ordinals of the Cells in the Row, only valid until this method returns
+	 * @throws IOException if there is a problem writing the Row
+	 */
+	public void write(int[] ordinals) throws IOException;
+}
@@ -0,0 +1,350 @@
+package cellularautomaton;
+
+import java.util.Arrays;
+
+/**
+ * class RuleBatch to generate the CellularAutomata of up to 64 rules for two Cells at once,
+ * all from the same starting Row. The Cells are bit sliced across the rules instead of
+ * across the columns, so each column of a Row is a single long holding the Cell of that
+ * column under every rule, bit k for the k-th rule added.
+ * <br><br>
+ * Each rule is a table of one output bit per pattern, so the outputs of every rule for a
+ * pattern are packed into a long as well, and the next Cell of a column under every rule
+ * is looked up at once with a tree of bitwise selects on the Cells of its pattern, from
+ * the rightmost Cell, the least significant digit of a pattern number, to the leftmost.
+ * <br><br>
+ * A Row is generated 64 columns at a time, each level of the tree of selects across all 64
+ * columns before the next. The block of 64 columns by 64 rules is then transposed once and
+ * each of its words is written straight into the bit packed CellGrid of its rule. A rule stops
+ * being stored once its Rows start to cycle.
+ * <br><br>
+ * The Rows of all 64 rules are generated until the last of them cycles, and their 64 CellGrids
+ * are written at once. For elementary rules a BitEngine generates a rule faster than that, and
+ * it stops each rule as soon as it cycles. So a RuleBatch only takes patterns that are generated
+ * faster in lockstep than one rule at a time.
+ */
+public class RuleBatch
+{
+	/**
+	 * the most rules generated at once, one per bit of a long
+	 */
+	public static final int maxRules = 64;
+	
+	/**
+	 * the smallest patternSize a RuleBatch generates with, below it a BitEngine generates
+	 * the rules one at a time faster than a RuleBatch generates and unpacks them
+	 */
+	private static final int minPatternSize = 5;
+	
+	/**
+	 * the largest patternSize a RuleBatch generates with, the tree of selects
+	 * doubles with each Cell of a pattern
+	 */
+	private static final int maxPatternSize = 7;
+	
+	private Dictionary dictionary;
+	
+	private int numRows;
+	private int patternSize;
+	private int numPatterns;
+	private int NULL;
+	
+	/**
+	 * the outputs of every rule for each pattern number, bit k for the k-th rule
+	 */
+	private long[] outputs;
+	private int numRules;
+	
+	/**
+	 * the outputs of each pair of patterns that only differ in their rightmost Cell exclusive or'd together,
+	 * and the tables of selected outputs of 64 columns while a level of the tree of selects is generated
+	 */
+	private long[] differences;
+	private long[] selected;
+	private long[] narrowed;
+	
+	private CellularAutomaton[] automata;
+	
+	/**
+	 * Returns true if a RuleBatch can generate with rules like the specified rules
+	 * 
+	 * @param dictionary the rules to check
+	 * @return if the Alphabet of the rules has two Cells and the patterns are a size a RuleBatch is faster for
+	 */
+	public static boolean supports(Dictionary dictionary)
+	{
+		int patternSize = dictionary.getPatternSize();
+		
+		return dictionary.getRadix() == 2 && minPatternSize <= patternSize && patternSize <= maxPatternSize
+				&& dictionary.getRuleMode() == RuleMode.PATTERN;
+	}
+	
+	/**
+	 * Creates an empty RuleBatch for rules like the specified rules
+	 * 
+	 * @param dictionary rules with the Alphabet and patternSize of every rule to be added
+	 * @param numRows the number of Rows of each CellularAutomaton
+	 */
+	public RuleBatch(Dictionary dictionary, int numRows)
+	{
+		if(!supports(dictionary))
+			throw new IllegalArgumentException("Error, a RuleBatch cannot generate with " + dictionary);
+		
+		this.dictionary = dictionary;
+		this.numRows = numRows;
+		
+		patternSize = dictionary.getPatternSize();
+		numPatterns = 1 << patternSize;
+		
+		NULL = dictionary.getAlphabet().getNULLordinal();
+		
+		if(NULL < 0)
+			throw new IllegalStateException("Error, NULL has not been set in the Alphabet of " + dictionary);
+		
+		outputs = new long[numPatterns];
+		differences = new long[numPatterns / 2];
+		selected = new long[numPatterns / 2 * 64];
+		narrowed = new long[numPatterns / 2 * 64];
+		
+		automata = new CellularAutomaton[maxRules];
+		for(int i = 0; i < maxRules; i++)
+			automata[i] = new CellularAutomaton(numRows);
+	}
+	
+	/**
+	 * Gets the number of rules added since this RuleBatch was last cleared
+	 * 
+	 * @return the number of rules
+	 */
+	public int size()
+	{
+		return numRules;
+	}
+	
+	/**
+	 * Removes every rule from this RuleBatch
+	 */
+	public void clear()
+	{
+		numRules = 0;
+		
+		for(int index = 0; index < numPatterns; index++)
+			outputs[index] = 0L;
+	}
+	
+	/**
+	 * Adds the current rules of a Dictionary to this RuleBatch, the Dictionary
+	 * can be remapped afterwards without changing the rules that were added
+	 * 
+	 * @param dictionary the rules to add, with the same Alphabet and patternSize as this RuleBatch
+	 */
+	public void add(Dictionary dictionary)
+	{
+		if(numRules == maxRules)
+			throw new IllegalStateException("Error, a RuleBatch holds at most " + maxRules + " rules");
+		
+		long bit = 1L << numRules;
+		
+		for(int index = 0; index < numPatterns; index++)
+		{
+			int output = dictionary.getOutput(index);
+			
+			if((output < 0 ? NULL : output) == 1)
+				outputs[index] |= bit;
+		}
+		
+		numRules++;
+	}
+	
+	/**
+	 * Gets the CellularAutomaton generated for a rule, it is overwritten by the next generation
+	 * 
+	 * @param index the position the rule was added at
+	 * @return the CellularAutomaton of the rule
+	 */
+	public CellularAutomaton get(int index)
+	{
+		return automata[index];
+	}
+	
+	/**
+	 * Generates the CellularAutomaton of every rule in this RuleBatch from the startingRow
+	 * 
+	 * @param startingRow the first Row of every CellularAutomaton
+	 */
+	public void generate(Row startingRow)
+	{
+		int numColumns = startingRow.size();
+		int leftPadding = patternSize / 2;
+		int numWords = (numColumns + 63) / 64;
+		
+		CellGrid[] grids = new CellGrid[numRules];
+		CycleFinder[] cycleFinders = new CycleFinder[numRules];
+		
+		for(int i = 0; i < numRules; i++)
+		{
+			grids[i] = automata[i].prepare(dictionary, numColumns);
+			cycleFinders[i] = automata[i].getCycleFinder();
+		}
+		
+		//the columns of the current and next Row, padded with NULL under every rule
+		long nullWord = NULL == 1 ? -1L : 0L;
+		long[] current = new long[numColumns + patternSize - 1];
+		long[] next = new long[current.length];
+		Arrays.fill(current, nullWord);
+		Arrays.fill(next, nullWord);
+		
+		for(int col = 0; col < numColumns; col++)
+		{
+			Cell cell = startingRow.get(col);
+			int ordinal = cell == null ? NULL : cell.ordinal;
+			current[leftPadding + col] = ordinal == 1 ? -1L : 0L;
+		}
+		
+		for(int index = 0; index < numPatterns / 2; index++)
+			differences[index] = outputs[2 * index] ^ outputs[2 * index + 1];
+		
+		long[] block = new long[64];
+		
+		//the rules whose Rows have not started to cycle yet
+		long running = numRules == 64 ? -1L : (1L << numRules) - 1;
+		
+		for(int i = 0; i < numRows && running != 0; i++)
+		{
+			//the Row is generated 64 columns at a time, and each block of 64 columns by 64 rules
+			//is transposed once into a word of the Row of every rule still running
+			for(int word = 0; word < numWords; word++)
+			{
+				int first = word * 64;
+				int length = Math.min(64, numColumns - first);
+				
+				if(i > 0)
+				{
+					step(current, first, length);
+					System.arraycopy(selected, 0, next, leftPadding + first, length);
+					System.arraycopy(selected, 0, block, 0, length);
+				}
+				else
+					System.arraycopy(current, leftPadding + first, block, 0, length);
+				
+				for(int b = length; b < 64; b++)
+					block[b] = 0L;
+				
+				transpose(block);
+				
+				for(long rules = running; rules != 0; rules &= rules - 1)
+				{
+					int rule = Long.numberOfTrailingZeros(rules);
+					grids[rule].setWord(i, word, block[rule]);
+				}
+			}
+			
+			if(i > 0)
+			{
+				long[] parent = current;
+				current = next;
+				next = parent;
+			}
+			
+			for(long rules = running; rules != 0; rules &= rules - 1)
+			{
+				int rule = Long.numberOfTrailingZeros(rules);
+				
+				CellGrid grid = grids[rule];
+				int row = i;
+				int earlier = cycleFinders[rule].add(row, grid.getRowHash(row), candidate -> grid.rowEquals(candidate, row));
+				
+				if(earlier >= 0)
+				{
+					int period = row - earlier;
+					
+					for(int j = row + 1; j < numRows; j++)
+						grid.copyRow(j - period, j);
+					
+					running &= ~(1L << rule);
+				}
+			}
+		}
+		
+		for(int i = 0; i < numRules; i++)
+			automata[i].setGenerated();
+	}
+	
+	/**
+	 * Generates up to 64 columns of the next Row of every rule into the start of selected, one level
+	 * of the tree of selects at a time across all of the columns, so each level is a loop of
+	 * independent selects the JIT can vectorize
+	 * 
+	 * @param parent the columns of the current Row, with their padding, the window of column c starts at parent[c]
+	 * @param first the first column to generate
+	 * @param length the number of columns to generate
+	 */
+	private void step(long[] parent, int first, int length)
+	{
+		long[] from = selected;
+		long[] to = narrowed;
+		
+		//the rightmost Cell picks between the outputs of each pair of patterns that only differ in it
+		int cells = first + patternSize - 1;
+		for(int index = 0, count = numPatterns / 2; index < count; index++)
+		{
+			long low = outputs[2 * index];
+			long difference = differences[index];
+			int base = index * 64;
+			
+			for(int col = 0; col < length; col++)
+				from[base + col] = low ^ (parent[cells + col] & difference);
+		}
+		
+		//each Cell further left picks between the halves of the remaining table
+		for(int position = patternSize - 2, count = numPatterns / 2; position >= 0; position--)
+		{
+			cells = first + position;
+			count /= 2;
+			
+			for(int index = 0; index < count; index++)
+			{
+				int low = 2 * index * 64;
+				int high = low + 64;
+				int base = index * 64;
+				
+				for(int col = 0; col < length; col++)
+				{
+					long selectedLow = from[low + col];
+					to[base + col] = selectedLow ^ (parent[cells + col] & (selectedLow ^ from[high + col]));
+				}
+			}
+			
+			long[] swap = from;
+			from = to;
+			to = swap;
+		}
+		
+		if(from != selected)
+			System.arraycopy(from, 0, selected, 0, length);
+	}
+	
+	/**
+	 * Transposes a 64 by 64 matrix of bits in place, bit b of word w is swapped with bit w of word b
+	 * 
+	 * @param block the 64 words of the matrix
+	 */
+	private static void transpose(long[] block)
+	{
+		long mask = 0x00000000FFFFFFFFL;
+		
+		//swaps the off diagonal quarters of every square of size 2 * width
+		for(int width = 32; width != 0; width >>>= 1, mask ^= mask << width)
+		{
+			for(int base = 0; base < 64; base += 2 * width)
+			{
+				for(int w = base; w < base + width; w++)
+				{
+					long swapped = ((block[w] >>> width) ^ block[w + width]) & mask;
+					block[w] ^= swapped << width;
+					block[w + width] ^= swapped;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package cellularautomaton;
+
+/**
+ * enum RuleClass, how the Rows of a CellularAutomaton behave once they settle down,
+ * as found by a RuleClassifier from its first few Rows
+ */
+public enum RuleClass
+{
+	/**
+	 * the Rows settle on a single Row made of one Cell
+	 */
+	UNIFORM,
+	
+	/**
+	 * the Rows settle on a single Row made of more than one Cell
+	 */
+	FIXED,
+	
+	/**
+	 * the Rows settle on a cycle of more than one Row
+	 */
+	PERIODIC,
+	
+	/**
+	 * the Rows have not repeated by the end of the Rows that were looked at
+	 */
+	ACTIVE;
+	
+	/**
+	 * Gets the RuleClass with the specified name, ignoring case
+	 * 
+	 * @param name the name of the RuleClass
+	 * @return the RuleClass with the specified name
+	 * @throws IllegalArgumentException if there is no RuleClass with the specified name
+	 */
+	public static RuleClass parse(String name)
+	{
+		return valueOf(name.toUpperCase());
+	}
+	
+	public String toString()
+	{
+		return name().toLowerCase();
+	}
+}
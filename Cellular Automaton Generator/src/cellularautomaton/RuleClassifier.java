@@ -0,0 +1,131 @@
+package cellularautomaton;
+
+import java.util.Arrays;
+
+/**
+ * class RuleClassifier to tell the rules whose CellularAutomata settle into a uniform,
+ * fixed, or periodic Row from the rules that are still active, by generating only the
+ * first few Rows. Most rules settle within a handful of Rows, so a sweep can skip the
+ * full generation and the image of every rule in a class it is not interested in.
+ * <br><br>
+ * The Rows are the Rows of the image, rowStride generations apart, so a rule is classified
+ * by what its image shows: a rule whose period divides the rowStride has a fixed image.
+ * <br><br>
+ * A Row that is the same as the Row above it is found as soon as it is generated, and
+ * longer cycles are found with a CycleFinder. The Rows are kept in buffers that are
+ * reused for every rule, as is the Engine when the Dictionary is remapped in place, so
+ * classifying allocates nothing once the first rule is done.
+ */
+public class RuleClassifier
+{
+	/**
+	 * the most Rows generated to classify a rule
+	 */
+	public static final int maxProbeRows = 256;
+	
+	private int numProbeRows;
+	
+	/**
+	 * the number of generations between consecutive Rows, 1 keeps every generation
+	 */
+	private long rowStride = 1;
+	
+	/**
+	 * the number of RuleClassifiers and CellularAutomata generating at once, which share the heap
+	 * for the nodes of a HashLifeEngine
+	 */
+	private int numThreads = 1;
+	
+	private int[][] rows;
+	private CycleFinder cycleFinder;
+	private Engine engine;
+	
+	/**
+	 * Creates a RuleClassifier for CellularAutomata with the specified number of Rows
+	 * 
+	 * @param numRows the number of Rows of the CellularAutomata, only that many Rows are looked at
+	 */
+	public RuleClassifier(int numRows)
+	{
+		numProbeRows = Math.max(1, Math.min(numRows, maxProbeRows));
+		cycleFinder = new CycleFinder(numProbeRows);
+	}
+	
+	/**
+	 * Sets the number of generations between consecutive Rows, the same as the row stride
+	 * of the CellularAutomata being classified
+	 * 
+	 * @param rowStride the number of generations between Rows, at least 1
+	 */
+	public void setRowStride(long rowStride)
+	{
+		if(rowStride < 1)
+			throw new IllegalArgumentException("Error, the row stride has to be at least 1, got " + rowStride);
+		
+		this.rowStride = rowStride;
+	}
+	
+	/**
+	 * Sets the number of threads generating at the same time, so a HashLifeEngine
+	 * only keeps as many nodes as fit in its share of the heap
+	 * 
+	 * @param numThreads the number of threads generating at once, at least 1
+	 */
+	public void setNumThreads(int numThreads)
+	{
+		if(numThreads < 1)
+			throw new IllegalArgumentException("Error, the number of threads has to be at least 1, got " + numThreads);
+		
+		this.numThreads = numThreads;
+	}
+	
+	/**
+	 * Generates the first few Rows from the startingRow, until a Row repeats an earlier Row
+	 * 
+	 * @param startingRow the first Row
+	 * @param dictionary the rules to generate with
+	 * @return the RuleClass of the rules for the startingRow
+	 */
+	public RuleClass classify(Row startingRow, Dictionary dictionary)
+	{
+		int numColumns = startingRow.size();
+		
+		if(rows == null || rows[0].length != numColumns)
+			rows = new int[numProbeRows][numColumns];
+		
+		cycleFinder.clear();
+		
+		engine = Engine.reuse(engine, dictionary, numColumns, rowStride);
+		if(engine instanceof HashLifeEngine)
+			((HashLifeEngine) engine).setNumThreads(numThreads);
+		engine.load(startingRow);
+		
+		for(int i = 0; i < numProbeRows; i++)
+		{
+			int[] ordinals = rows[i];
+			
+			if(i > 0)
+				engine.advance(rowStride);
+			engine.store(ordinals);
+			
+			//rules that die out are found without hashing
+			if(i > 0 && Arrays.equals(ordinals, rows[i - 1]))
+				return isUniform(ordinals) ? RuleClass.UNIFORM : RuleClass.FIXED;
+			
+			//any other Row that repeats is part of a cycle of more than one Row
+			if(cycleFinder.add(i, CycleFinder.hash(ordinals, numColumns), candidate -> Arrays.equals(rows[candidate], ordinals)) >= 0)
+				return RuleClass.PERIODIC;
+		}
+		
+		return RuleClass.ACTIVE;
+	}
+	
+	private static boolean isUniform(int[] ordinals)
+	{
+		for(int ordinal : ordinals)
+			if(ordinal != ordinals[0])
+				return false;
+		
+		return true;
+	}
+}
@@ -0,0 +1,46 @@
+package cellularautomaton;
+
+/**
+ * enum RuleMode, what the output of a Cell in a Dictionary depends on, which decides what
+ * the patterns of the Dictionary are. A totalistic rule only depends on the sum of the
+ * ordinals of the Cells in a pattern, so it has a rule for each sum rather than for each
+ * pattern, and the number of rules grows with the patternSize instead of exponentially.
+ */
+public enum RuleMode
+{
+	/**
+	 * every pattern of Cells has its own output, the pattern number reads the
+	 * ordinals of the Cells as the digits of a number in the radix of the Alphabet
+	 */
+	PATTERN,
+	
+	/**
+	 * the output depends on the sum of the ordinals of the Cells in a pattern,
+	 * the pattern number is the sum
+	 */
+	TOTALISTIC,
+	
+	/**
+	 * the output depends on the Cell at the center of a pattern and the sum of the
+	 * ordinals of the other Cells, the pattern number is the ordinal of the center
+	 * times the number of sums of the other Cells, plus their sum
+	 */
+	OUTER_TOTALISTIC;
+	
+	/**
+	 * Gets the RuleMode with the specified name, ignoring case, with words separated by a hyphen
+	 * 
+	 * @param name the name of the RuleMode
+	 * @return the RuleMode with the specified name
+	 * @throws IllegalArgumentException if there is no RuleMode with the specified name
+	 */
+	public static RuleMode parse(String name)
+	{
+		return valueOf(name.toUpperCase().replace('-', '_'));
+	}
+	
+	public String toString()
+	{
+		return name().toLowerCase().replace('_', '-');
+	}
+}
@@ -0,0 +1,142 @@
+package cellularautomaton;
+
+import java.math.BigInteger;
+
+/**
+ * class RuleOdometer to step through consecutive rule numbers by their digits, the way an
+ * odometer counts, so a rule number of any size is never converted from scratch. Going to
+ * the next rule number turns over the trailing digits that are at their largest value and
+ * adds one to the digit after them, which changes a single digit radix - 1 times out of radix,
+ * so each step changes fewer than two digits on average.
+ * <br><br>
+ * Each step reports how many of the least significant digits it changed, so only the outputs
+ * of those patterns have to be remapped in a Dictionary. A rule number has a digit for every
+ * pattern, so the digits are kept in bytes when the radix allows it, the same as a RuleTable.
+ */
+public class RuleOdometer
+{
+	private int radix;
+	private int numDigits;
+	
+	/**
+	 * the digits of the current rule number, least significant first, in bytes when
+	 * the radix is at most 256 and in ints otherwise, the other array is null
+	 */
+	private byte[] bytes;
+	private int[] ints;
+	
+	/**
+	 * converts rule numbers to digits, null until the first rule number is set
+	 */
+	private RadixConverter converter;
+	
+	/**
+	 * the number of least significant digits changed by the rule number being set
+	 */
+	private int numChanged;
+	
+	/**
+	 * Creates a RuleOdometer at rule number 0
+	 * 
+	 * @param radix the number of Cells in the Alphabet
+	 * @param numDigits the number of digits of each rule number, one for each pattern
+	 */
+	public RuleOdometer(int radix, int numDigits)
+	{
+		this.radix = radix;
+		this.numDigits = numDigits;
+		
+		if(radix <= 256)
+			bytes = new byte[numDigits];
+		else
+			ints = new int[numDigits];
+	}
+	
+	/**
+	 * Creates a RuleOdometer at the rule number of the specified RuleOdometer
+	 * 
+	 * @param toCopy the RuleOdometer to copy
+	 */
+	public RuleOdometer(RuleOdometer toCopy)
+	{
+		radix = toCopy.radix;
+		numDigits = toCopy.numDigits;
+		bytes = toCopy.bytes == null ? null : toCopy.bytes.clone();
+		ints = toCopy.ints == null ? null : toCopy.ints.clone();
+		converter = toCopy.converter;
+	}
+	
+	/**
+	 * Moves this RuleOdometer to the specified rule number
+	 * 
+	 * @param ruleNumber the rule number, at least 0 and with at most numDigits digits
+	 * @return the number of least significant digits that changed
+	 */
+	public int set(BigInteger ruleNumber)
+	{
+		if(converter == null)
+			converter = new RadixConverter(radix, numDigits);
+		
+		numChanged = 0;
+		converter.toDigits(ruleNumber, this::setDigit);
+		
+		return numChanged;
+	}
+	
+	private void setDigit(int i, int digit)
+	{
+		if(getDigit(i) == digit)
+			return;
+		
+		if(bytes != null)
+			bytes[i] = (byte) digit;
+		else
+			ints[i] = digit;
+		
+		numChanged = Math.max(numChanged, i + 1);
+	}
+	
+	/**
+	 * Gets a digit of the current rule number
+	 * 
+	 * @param i the index of the digit, 0 for the least significant digit
+	 * @return the digit
+	 */
+	public int getDigit(int i)
+	{
+		return bytes != null ? bytes[i] & 0xFF : ints[i];
+	}
+	
+	/**
+	 * Gets the number of digits of each rule number
+	 * 
+	 * @return the number of digits
+	 */
+	public int getNumDigits()
+	{
+		return numDigits;
+	}
+	
+	/**
+	 * Moves this RuleOdometer to the next rule number, after the largest rule number comes 0
+	 * 
+	 * @return the number of least significant digits that changed
+	 */
+	public int increment()
+	{
+		int i = 0;
+		
+		while(i < numDigits && getDigit(i) == radix - 1)
+		{
+			setDigit(i, 0);
+			i++;
+		}
+		
+		if(i == numDigits)
+			return numDigits;
+		
+		setDigit(i, getDigit(i) + 1);
+		
+		return i + 1;
+	}
+}
@@ -0,0 +1,305 @@
+package cellularautomaton;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * class RuleScanner to read the identifiers of Cells from a file of rules, split by whitespace
+ * the way a Scanner splits them, without a regular expression or a String for every identifier.
+ * The file is memory mapped, and each identifier is looked up by its bytes in a hash table of
+ * the identifiers of the Alphabet, so reading a file of millions of rules is bound by the disk.
+ * <br><br>
+ * A file too large to map at once is mapped in windows, each new window starting at the
+ * identifier that ran past the end of the last one.
+ */
+class RuleScanner implements Closeable
+{
+	/**
+	 * the most bytes of the file mapped at once
+	 */
+	private static final int maxWindowSize = 1 << 30;
+	
+	private File file;
+	private Alphabet alphabet;
+	
+	private FileChannel channel;
+	private long size;
+	
+	/**
+	 * the mapped part of the file, starting at byte windowStart of the file
+	 */
+	private MappedByteBuffer window;
+	private long windowStart;
+	private int position;
+	
+	/**
+	 * the end of the identifier found by nextLength, exclusive
+	 */
+	private int end;
+	
+	/**
+	 * the UTF-8 bytes of the identifier of each Cell and of NULL, and the ordinal each identifies
+	 */
+	private byte[][] ids;
+	private int[] ordinals;
+	
+	/**
+	 * a hash table of the identifiers by the hash of their bytes, holding
+	 * the index of an identifier + 1 in each used slot and 0 in each empty slot
+	 */
+	private int[] slots;
+	
+	/**
+	 * Opens a file of rules to read the identifiers of Cells in an Alphabet from
+	 * 
+	 * @param file the file to read
+	 * @param alphabet the Alphabet the identifiers are in
+	 * @throws IOException if there is a problem opening the file
+	 */
+	public RuleScanner(File file, Alphabet alphabet) throws IOException
+	{
+		this.file = file;
+		this.alphabet = alphabet;
+		
+		int radix = alphabet.numCells();
+		int nullOrdinal = alphabet.getNULLordinal();
+		
+		int numIds = nullOrdinal < 0 ? radix : radix + 1;
+		
+		ids = new byte[numIds][];
+		ordinals = new int[numIds];
+		slots = new int[Integer.highestOneBit(numIds) * 4];
+		
+		for(int ordinal = 0; ordinal < radix; ordinal++)
+			addId(ordinal, alphabet.get(ordinal).id, ordinal);
+		
+		if(nullOrdinal >= 0)
+			addId(radix, "NULL", nullOrdinal);
+		
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		size = channel.size();
+		
+		map(0);
+	}
+	
+	/**
+	 * Adds an identifier to the hash table of identifiers
+	 * 
+	 * @param index the index of the identifier
+	 * @param id the identifier
+	 * @param ordinal the ordinal of the Cell it identifies
+	 */
+	private void addId(int index, String id, int ordinal)
+	{
+		ids[index] = id.getBytes(StandardCharsets.UTF_8);
+		ordinals[index] = ordinal;
+		
+		int slot = hash(ids[index], 0, ids[index].length) & (slots.length - 1);
+		while(slots[slot] != 0)
+			slot = (slot + 1) & (slots.length - 1);
+		
+		slots[slot] = index + 1;
+	}
+	
+	/**
+	 * Maps the window of the file starting at the specified byte
+	 * 
+	 * @param start the first byte of the file in the window
+	 * @throws IOException if there is a problem mapping the file
+	 */
+	private void map(long start) throws IOException
+	{
+		windowStart = start;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(maxWindowSize, size - start));
+		position = 0;
+	}
+	
+	/**
+	 * Returns true if the file has more identifiers, moving past the whitespace before the next one
+	 * 
+	 * @return if there is another identifier in the file
+	 * @throws IOException if there is a problem mapping the file
+	 */
+	public boolean hasNext() throws IOException
+	{
+		while(true)
+		{
+			while(position < window.limit() && isWhitespace(window.get(position)))
+				position++;
+			
+			if(position < window.limit())
+				return true;
+			
+			if(windowStart + position >= size)
+				return false;
+			
+			map(windowStart + position);
+		}
+	}
+	
+	/**
+	 * Moves past the next identifier without looking it up
+	 * 
+	 * @throws Exception if there are no more identifiers in the file
+	 */
+	public void skip() throws Exception
+	{
+		nextLength();
+		position = end;
+	}
+	
+	/**
+	 * Reads the next identifier and gets the ordinal of the Cell it identifies
+	 * 
+	 * @return the ordinal of the Cell with the next identifier
+	 * @throws Exception if there are no more identifiers in the file, or no
+	 * Cell in the alphabet has the next identifier
+	 */
+	public int nextOrdinal() throws Exception
+	{
+		int length = nextLength();
+		int start = position;
+		position = end;
+		
+		int slot = hash(window, start, length) & (slots.length - 1);
+		
+		for(; slots[slot] != 0; slot = (slot + 1) & (slots.length - 1))
+		{
+			int index = slots[slot] - 1;
+			
+			if(equals(ids[index], start, length))
+				return ordinals[index];
+		}
+		
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; i++)
+			bytes[i] = window.get(start + i);
+		
+		throw new Exception( ""
+				+ "Error, the identifier " + new String(bytes, StandardCharsets.UTF_8) + " used in the file \"" + file.getName() + "\" is not defined\n"
+				+ "in your alphabet, add it to \"alphabet.txt\" or replace it with one of the following\n\n"
+				+ alphabet);
+	}
+	
+	/**
+	 * Reads the next identifier as a sum of the ordinals of a pattern, for totalistic rules
+	 * 
+	 * @param max the largest sum a pattern can have
+	 * @return the sum
+	 * @throws Exception if there are no more identifiers in the file, or the next
+	 * identifier is not a number from 0 to max
+	 */
+	public int nextNumber(int max) throws Exception
+	{
+		int length = nextLength();
+		int start = position;
+		position = end;
+		
+		long number = 0;
+		boolean isNumber = length > 0 && length <= 10;
+		
+		for(int i = 0; i < length && isNumber; i++)
+		{
+			byte b = window.get(start + i);
+			isNumber = b >= '0' && b <= '9';
+			number = number * 10 + (b - '0');
+		}
+		
+		if(isNumber && number <= max)
+			return (int) number;
+		
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; i++)
+			bytes[i] = window.get(start + i);
+		
+		throw new Exception( ""
+				+ "Error, the sum " + new String(bytes, StandardCharsets.UTF_8) + " used in the file \"" + file.getName() + "\" is not\n"
+				+ "a sum the Cells of a pattern can have, a sum has to be a number from 0 to " + max);
+	}
+	
+	/**
+	 * Finds the next identifier, mapping a new window starting at it if it runs past the end of
+	 * the current window, and leaves position at its start and end at its end
+	 * 
+	 * @return the length of the next identifier in bytes
+	 * @throws Exception if there are no more identifiers in the file
+	 */
+	private int nextLength() throws Exception
+	{
+		if(!hasNext())
+			throw new Exception("Error, the file \"" + file.getName() + "\" ends in the middle of a rule");
+		
+		while(true)
+		{
+			end = position;
+			while(end < window.limit() && !isWhitespace(window.get(end)))
+				end++;
+			
+			if(end < window.limit() || windowStart + end >= size || position == 0)
+				return end - position;
+			
+			map(windowStart + position);
+		}
+	}
+	
+	/**
+	 * Compares the bytes of an identifier with the bytes of the window
+	 * 
+	 * @param id the bytes of the identifier
+	 * @param start the index of the first byte in the window
+	 * @param length the number of bytes in the window
+	 * @return true if the bytes are the same
+	 */
+	private boolean equals(byte[] id, int start, int length)
+	{
+		if(id.length != length)
+			return false;
+		
+		for(int i = 0; i < length; i++)
+			if(id[i] != window.get(start + i))
+				return false;
+		
+		return true;
+	}
+	
+	private static int hash(byte[] bytes, int start, int length)
+	{
+		int hash = 0;
+		
+		for(int i = start; i < start + length; i++)
+			hash = 31 * hash + bytes[i];
+		
+		return hash ^ (hash >>> 16);
+	}
+	
+	private static int hash(MappedByteBuffer bytes, int start, int length)
+	{
+		int hash = 0;
+		
+		for(int i = start; i < start + length; i++)
+			hash = 31 * hash + bytes.get(i);
+		
+		return hash ^ (hash >>> 16);
+	}
+	
+	/**
+	 * Returns true if a byte is one of the ASCII characters a Scanner splits identifiers at
+	 * 
+	 * @param b the byte to check
+	 * @return if the byte is whitespace
+	 */
+	private static boolean isWhitespace(byte b)
+	{
+		return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+	}
+	
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+}
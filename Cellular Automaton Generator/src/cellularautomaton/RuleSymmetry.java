@@ -0,0 +1,351 @@
+package cellularautomaton;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * class RuleSymmetry to find the rule numbers whose CellularAutomata are mirror images or
+ * recolorings of each other. Mirroring the patterns of a rule from left to right and swapping
+ * the Cells of the Alphabet around gives another rule, and when the starting Row and the NULL
+ * Cells past its ends are unchanged by the same mirroring and swapping, the CellularAutomaton
+ * of the new rule is the CellularAutomaton of the old rule mirrored and recolored the same way.
+ * <br><br>
+ * The mirrorings and swaps that leave the starting Row and NULL unchanged split the rule
+ * numbers into classes of rules with the same CellularAutomaton up to mirroring and recoloring.
+ * The smallest rule number of each class is its canonical rule number, and only the canonical
+ * rule numbers have to be generated. Patterns can only be mirrored when the patternSize is odd,
+ * since an even sized pattern is not centered on the Cell it generates.
+ */
+public class RuleSymmetry
+{
+	/**
+	 * the most swaps of Cells that do not appear in the starting Row to consider,
+	 * beyond which those Cells are left in place
+	 */
+	private static final int maxFreeSwaps = 720;
+	
+	private Alphabet alphabet;
+	private int radix;
+	private int numKeys;
+	
+	/**
+	 * whether each transform mirrors the patterns of a rule
+	 */
+	private ArrayList<Boolean> mirrors;
+	
+	/**
+	 * the ordinal each transform swaps each ordinal with
+	 */
+	private ArrayList<int[]> swaps;
+	
+	/**
+	 * for each transform, the digit of a rule number that each digit of the transformed rule number is taken from
+	 */
+	private ArrayList<int[]> sources;
+	
+	/**
+	 * turns the digits of a transformed rule number into the rule number
+	 */
+	private RadixConverter converter;
+	
+	/**
+	 * Finds the mirrorings and swaps of Cells that leave the starting Row and NULL unchanged,
+	 * and that map every pattern with a rule to another pattern with a rule
+	 * 
+	 * @param dictionary the rules, with the patterns in the order of the digits of a rule number
+	 * @param startingRow the Row the CellularAutomata are generated from
+	 */
+	public RuleSymmetry(Dictionary dictionary, Row startingRow)
+	{
+		if(dictionary.getRuleMode() != RuleMode.PATTERN)
+			throw new IllegalArgumentException("Error, the symmetries of rules are only found for rules in the pattern RuleMode, not " + dictionary.getRuleMode());
+		
+		alphabet = dictionary.getAlphabet();
+		radix = dictionary.getRadix();
+		numKeys = dictionary.getNumKeys();
+		converter = new RadixConverter(radix, numKeys);
+		
+		mirrors = new ArrayList<Boolean>();
+		swaps = new ArrayList<int[]>();
+		sources = new ArrayList<int[]>();
+		
+		int NULL = alphabet.getNULLordinal();
+		
+		int[] row = new int[startingRow.size()];
+		for(int col = 0; col < row.length; col++)
+		{
+			Cell cell = startingRow.get(col);
+			row[col] = cell == null ? NULL : cell.ordinal;
+		}
+		
+		int[] positions = new int[dictionary.getNumPatterns()];
+		Arrays.fill(positions, -1);
+		for(int i = 0; i < numKeys; i++)
+			positions[dictionary.getKeyIndex(i)] = i;
+		
+		for(int mirror = 0; mirror < 2; mirror++)
+		{
+			if(mirror == 1 && dictionary.getPatternSize() % 2 == 0)
+				break;
+			
+			for(int[] swap : getSwaps(row, NULL, mirror == 1))
+			{
+				int[] source = getSources(dictionary, positions, mirror == 1, swap);
+				
+				if(source != null)
+				{
+					mirrors.add(mirror == 1);
+					swaps.add(swap);
+					sources.add(source);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Gets the swaps of Cells that leave NULL, and the starting Row mirrored or not, unchanged
+	 * 
+	 * @param row the ordinals of the starting Row
+	 * @param NULL the ordinal of NULL
+	 * @param mirror whether the starting Row is mirrored
+	 * @return the ordinal each swap swaps each ordinal with
+	 */
+	private List<int[]> getSwaps(int[] row, int NULL, boolean mirror)
+	{
+		//the Cells of the starting Row decide what they are swapped with
+		int[] swap = new int[radix];
+		Arrays.fill(swap, -1);
+		swap[NULL] = NULL;
+		
+		int n = row.length;
+		for(int col = 0; col < n; col++)
+		{
+			int from = row[mirror ? n - 1 - col : col];
+			
+			if(swap[from] >= 0 && swap[from] != row[col])
+				return new ArrayList<int[]>();
+			
+			swap[from] = row[col];
+		}
+		
+		//the swap has to be one to one
+		boolean[] used = new boolean[radix];
+		for(int ordinal = 0; ordinal < radix; ordinal++)
+		{
+			if(swap[ordinal] >= 0)
+			{
+				if(used[swap[ordinal]])
+					return new ArrayList<int[]>();
+				
+				used[swap[ordinal]] = true;
+			}
+		}
+		
+		//the Cells not in the starting Row are swapped among the Cells left over
+		ArrayList<Integer> free = new ArrayList<Integer>();
+		ArrayList<Integer> left = new ArrayList<Integer>();
+		for(int ordinal = 0; ordinal < radix; ordinal++)
+		{
+			if(swap[ordinal] < 0)
+				free.add(ordinal);
+			if(!used[ordinal])
+				left.add(ordinal);
+		}
+		
+		long numFreeSwaps = 1;
+		for(int i = 2; i <= free.size() && numFreeSwaps <= maxFreeSwaps; i++)
+			numFreeSwaps *= i;
+		
+		List<int[]> list = new ArrayList<int[]>();
+		
+		if(numFreeSwaps > maxFreeSwaps)
+		{
+			//the free Cells are the Cells left over, so leaving them in place is still a swap
+			for(int ordinal : free)
+				swap[ordinal] = ordinal;
+			list.add(swap);
+		}
+		else
+			permute(swap, free, left, 0, new boolean[left.size()], list);
+		
+		return list;
+	}
+	
+	/**
+	 * Adds every way of swapping the free Cells with the Cells left over to a list
+	 */
+	private static void permute(int[] swap, List<Integer> free, List<Integer> left, int i, boolean[] taken, List<int[]> list)
+	{
+		if(i == free.size())
+		{
+			list.add(swap.clone());
+			return;
+		}
+		
+		for(int j = 0; j < left.size(); j++)
+		{
+			if(!taken[j])
+			{
+				taken[j] = true;
+				swap[free.get(i)] = left.get(j);
+				permute(swap, free, left, i + 1, taken, list);
+				taken[j] = false;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the digit of a rule number that each digit of the transformed rule number is taken from
+	 * 
+	 * @return the digit each digit is taken from, or null if the transform maps a pattern with a rule to one without
+	 */
+	private int[] getSources(Dictionary dictionary, int[] positions, boolean mirror, int[] swap)
+	{
+		int patternSize = dictionary.getPatternSize();
+		int[] source = new int[numKeys];
+		
+		for(int i = 0; i < numKeys; i++)
+		{
+			//the pattern number is read with its first Cell as the most significant digit
+			int index = dictionary.getKeyIndex(i);
+			int transformed = 0;
+			
+			if(mirror)
+			{
+				for(int j = 0; j < patternSize; j++, index /= radix)
+					transformed = transformed * radix + swap[index % radix];
+			}
+			else
+			{
+				for(int j = 0, place = 1; j < patternSize; j++, index /= radix, place *= radix)
+					transformed += swap[index % radix] * place;
+			}
+			
+			if(positions[transformed] < 0)
+				return null;
+			
+			source[positions[transformed]] = i;
+		}
+		
+		return source;
+	}
+	
+	/**
+	 * Gets the number of transforms, including the transform that changes nothing
+	 * 
+	 * @return the number of mirrorings and swaps of Cells that leave the starting Row unchanged
+	 */
+	public int size()
+	{
+		return mirrors.size();
+	}
+	
+	/**
+	 * Gets the digit of a transformed rule number
+	 * 
+	 * @param ruleSet the RuleOdometer at the rule number, with a digit for each pattern with a rule
+	 * @param transform the index of the transform
+	 * @param i the index of the digit
+	 * @return the digit of the transformed rule number
+	 */
+	private int getDigit(RuleOdometer ruleSet, int transform, int i)
+	{
+		return swaps.get(transform)[ruleSet.getDigit(sources.get(transform)[i])];
+	}
+	
+	/**
+	 * Returns true if a rule number is the smallest rule number of its class
+	 * 
+	 * @param ruleSet the RuleOdometer at the rule number
+	 * @return if no transform of the rule number is smaller than it
+	 */
+	public boolean isCanonical(RuleOdometer ruleSet)
+	{
+		for(int transform = 0; transform < size(); transform++)
+		{
+			for(int i = numKeys - 1; i >= 0; i--)
+			{
+				int digit = getDigit(ruleSet, transform, i);
+				int original = ruleSet.getDigit(i);
+				
+				if(digit < original)
+					return false;
+				if(digit > original)
+					break;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Gets the digits of the rule number a transform turns a rule number into
+	 * 
+	 * @param ruleSet the RuleOdometer at the rule number
+	 * @param transform the index of the transform
+	 * @return the digits of the transformed rule number, least significant first
+	 */
+	private int[] getDigits(RuleOdometer ruleSet, int transform)
+	{
+		int[] digits = new int[numKeys];
+		for(int i = 0; i < numKeys; i++)
+			digits[i] = getDigit(ruleSet, transform, i);
+		
+		return digits;
+	}
+	
+	/**
+	 * Gets the rule number a transform turns a rule number into
+	 * 
+	 * @param ruleSet the RuleOdometer at the rule number
+	 * @param transform the index of the transform
+	 * @return the transformed rule number
+	 */
+	public BigInteger getMember(RuleOdometer ruleSet, int transform)
+	{
+		return converter.toNumber(getDigits(ruleSet, transform));
+	}
+	
+	/**
+	 * Gets the first transform that turns a rule number into each of the other rule numbers
+	 * in its class, so the other members can be listed without writing them out in full,
+	 * getMember turns each transform back into its member
+	 * 
+	 * @param ruleSet the RuleOdometer at the rule number
+	 * @return the indices of the transforms, in order
+	 */
+	public List<Integer> getMemberTransforms(RuleOdometer ruleSet)
+	{
+		TreeSet<int[]> found = new TreeSet<int[]>(Arrays::compare);
+		found.add(getDigits(ruleSet, 0));
+		
+		List<Integer> transforms = new ArrayList<Integer>();
+		for(int transform = 1; transform < size(); transform++)
+		{
+			if(found.add(getDigits(ruleSet, transform)))
+				transforms.add(transform);
+		}
+		
+		return transforms;
+	}
+	
+	/**
+	 * Describes a transform as whether it mirrors, followed by the identifier
+	 * of the Cell that each Cell of the Alphabet, in order, is swapped with
+	 * 
+	 * @param transform the index of the transform
+	 * @return a description of the transform
+	 */
+	public String describe(int transform)
+	{
+		String str = mirrors.get(transform) ? "mirror" : "keep";
+		
+		for(int ordinal : swaps.get(transform))
+			str += " " + alphabet.get(ordinal).id;
+		
+		return str;
+	}
+}
@@ -0,0 +1,497 @@
+package cellularautomaton;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * class RuleTable to hold the ordinal of the output of every pattern of a Dictionary, indexed
+ * by pattern number, or -1 for a pattern without a rule. An output is stored in a single byte
+ * as its ordinal + 1, leaving 0 for a pattern without a rule, so a table takes a quarter of the
+ * memory of an array of ints. An Alphabet with more Cells than fit in a byte is stored as ints.
+ * <br><br>
+ * The bytes of a table can be kept in a memory mapped file instead of on the heap, so a table
+ * larger than the heap is held by the page cache of the operating system, which keeps the
+ * patterns that are looked up often in memory. A copy of a mapped table maps the same file
+ * privately, so the copies share every page of the file that none of them have written to,
+ * and a copy only takes memory for the pages of the patterns whose outputs it changes. An
+ * output that is set to the output it already has is not written, so its page stays shared.
+ * <br><br>
+ * A table file starts with a header page that records the rules it was built from, so
+ * programs reading the same rules map the same file and share its pages rather than each
+ * building their own. A table is built in a temporary file and moved over the table file
+ * once it is finished, so a program that still has the old table mapped keeps its rules.
+ */
+final class RuleTable
+{
+	/**
+	 * the most Cells an Alphabet can have for its outputs to be stored in bytes
+	 */
+	public static final int maxByteRadix = 255;
+	
+	/**
+	 * the first int of a table file, "CAGT" in ASCII, followed by the version of the format
+	 */
+	private static final int tableMagic = 0x43414754;
+	private static final int tableVersion = 1;
+	
+	/**
+	 * the number of bytes before the outputs in a table file, a page so the outputs start on a page
+	 */
+	private static final int headerSize = 4096;
+	
+	/**
+	 * the number of bytes in a page of a mapped file
+	 */
+	private static final int pageSize = 4096;
+	
+	/**
+	 * the most keys read or written at once
+	 */
+	private static final int keyBlockSize = 1 << 16;
+	
+	private int size;
+	
+	/**
+	 * the outputs + 1 when they are stored on the heap in bytes, or null
+	 */
+	private byte[] bytes;
+	
+	/**
+	 * the outputs + 1 when they are stored in a memory mapped file, the file, and the channel
+	 * the file was opened with, which copies map the file from so they map the same file even
+	 * after it has been replaced
+	 */
+	private MappedByteBuffer mapped;
+	private File file;
+	private FileChannel channel;
+	
+	/**
+	 * true if the file is mapped privately, so the outputs can differ from the file
+	 */
+	private boolean isPrivate;
+	
+	/**
+	 * the pages of a private table that have been written to, and so differ from the file, or null
+	 */
+	private BitSet writtenPages;
+	
+	/**
+	 * the keys stored in the table file when they are not the pattern numbers in order, or null,
+	 * and the number of keys
+	 */
+	private int[] keys;
+	private int numKeys;
+	
+	/**
+	 * the outputs when the Alphabet has too many Cells for bytes, or null
+	 */
+	private int[] ints;
+	
+	private RuleTable(int size)
+	{
+		this.size = size;
+	}
+	
+	/**
+	 * Creates a RuleTable on the heap without any rules
+	 * 
+	 * @param radix the number of Cells in the Alphabet
+	 * @param size the number of patterns
+	 * @return a new RuleTable
+	 */
+	public static RuleTable allocate(int radix, int size)
+	{
+		RuleTable table = new RuleTable(size);
+		
+		if(radix <= maxByteRadix)
+			table.bytes = new byte[size];
+		else
+		{
+			table.ints = new int[size];
+			Arrays.fill(table.ints, -1);
+		}
+		
+		return table;
+	}
+	
+	/**
+	 * Creates a RuleTable without any rules in a new temporary file next to the specified
+	 * table file, which becomes the table file once it is saved. The temporary file is
+	 * deleted when the program exits if it is never saved.
+	 * 
+	 * @param file the table file the table will be saved as
+	 * @param radix the number of Cells in the Alphabet
+	 * @param size the number of patterns
+	 * @return a new RuleTable
+	 * @throws IOException if there is a problem creating or mapping the file
+	 */
+	public static RuleTable map(File file, int radix, int size) throws IOException
+	{
+		checkRadix(radix);
+		
+		File directory = file.getAbsoluteFile().getParentFile();
+		File part = File.createTempFile(file.getName() + ".", ".part", directory);
+		part.deleteOnExit();
+		
+		RuleTable table = new RuleTable(size);
+		table.file = part;
+		table.channel = FileChannel.open(part.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		//mapping past the end of the new file extends it with zeros, which are patterns without a rule
+		table.mapped = table.channel.map(FileChannel.MapMode.READ_WRITE, headerSize, size);
+		
+		return table;
+	}
+	
+	/**
+	 * Maps an existing table file privately if it was saved from the rules with the specified stamp
+	 * 
+	 * @param file the table file
+	 * @param radix the number of Cells in the Alphabet
+	 * @param size the number of patterns
+	 * @param stamp the numbers that identify the rules, such as the size and age of the file they are read from
+	 * @return the RuleTable in the file, or null if there is no file, or it holds other rules
+	 * @throws IOException if there is a problem reading or mapping the file
+	 */
+	public static RuleTable open(File file, int radix, int size, long[] stamp) throws IOException
+	{
+		checkRadix(radix);
+		
+		if(!file.exists())
+			return null;
+		
+		//a private mapping needs a channel that could write, even though it never writes to the file
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		try
+		{
+			ByteBuffer header = ByteBuffer.allocate(headerSize);
+			while(header.hasRemaining() && channel.read(header, header.position()) >= 0);
+			header.flip();
+			
+			if(header.remaining() < headerSize || header.getInt() != tableMagic || header.getInt() != tableVersion
+					|| header.getInt() != size || header.getInt() != stamp.length)
+				return null;
+			
+			for(int i = 0; i < stamp.length; i++)
+				if(header.getLong() != stamp[i])
+					return null;
+			
+			int numKeys = header.getInt();
+			boolean hasKeys = header.getInt() != 0;
+			
+			if(numKeys < 0 || numKeys > size || channel.size() != headerSize + (long) size + (hasKeys ? 4L * numKeys : 0))
+				return null;
+			
+			RuleTable table = new RuleTable(size);
+			table.file = file;
+			table.channel = channel;
+			table.numKeys = numKeys;
+			
+			if(hasKeys)
+				table.keys = readKeys(channel, headerSize + (long) size, numKeys);
+			
+			table.mapped = channel.map(FileChannel.MapMode.PRIVATE, headerSize, size);
+			table.isPrivate = true;
+			
+			channel = null;
+			return table;
+		}
+		finally
+		{
+			if(channel != null)
+				channel.close();
+		}
+	}
+	
+	private static void checkRadix(int radix)
+	{
+		if(radix > maxByteRadix)
+			throw new IllegalArgumentException("Error, the outputs of an alphabet of " + radix + " Cells are too large to map, "
+					+ "an alphabet can have at most " + maxByteRadix + " Cells");
+	}
+	
+	/**
+	 * Reads the keys stored after the outputs of a table file
+	 * 
+	 * @param channel the table file
+	 * @param position the position of the first key in the file
+	 * @param numKeys the number of keys
+	 * @return the keys
+	 * @throws IOException if there is a problem reading the file
+	 */
+	private static int[] readKeys(FileChannel channel, long position, int numKeys) throws IOException
+	{
+		int[] keys = new int[numKeys];
+		ByteBuffer buffer = ByteBuffer.allocate(4 * keyBlockSize);
+		
+		for(int i = 0; i < numKeys; i += keyBlockSize)
+		{
+			int count = Math.min(keyBlockSize, numKeys - i);
+			
+			buffer.clear().limit(4 * count);
+			while(buffer.hasRemaining() && channel.read(buffer, position + 4L * i + buffer.position()) >= 0);
+			buffer.flip();
+			
+			buffer.asIntBuffer().get(keys, i, count);
+		}
+		
+		return keys;
+	}
+	
+	/**
+	 * Saves a table made by map as the table file it was made for, along with the stamp of the
+	 * rules it holds and their keys, and maps the saved file privately from then on, so the
+	 * saved file is never written again. The table is written to disk before it is moved over
+	 * the table file, so the table file always holds a whole table.
+	 * 
+	 * @param target the table file
+	 * @param stamp the numbers that identify the rules
+	 * @param keys the pattern numbers in the order their rules were read, or null if key i is pattern number i
+	 * @param numKeys the number of keys
+	 * @throws IOException if there is a problem writing or moving the file
+	 */
+	public void save(File target, long[] stamp, int[] keys, int numKeys) throws IOException
+	{
+		if(isPrivate || mapped == null)
+			throw new IllegalStateException("Error, only a new mapped rule table can be saved");
+		
+		if(keys != null)
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(4 * keyBlockSize);
+			long position = headerSize + (long) size;
+			
+			for(int i = 0; i < numKeys; i += keyBlockSize)
+			{
+				int count = Math.min(keyBlockSize, numKeys - i);
+				
+				buffer.clear();
+				buffer.asIntBuffer().put(keys, i, count);
+				buffer.limit(4 * count);
+				
+				while(buffer.hasRemaining())
+					position += channel.write(buffer, position);
+			}
+		}
+		
+		ByteBuffer header = ByteBuffer.allocate(headerSize);
+		header.putInt(tableMagic).putInt(tableVersion).putInt(size).putInt(stamp.length);
+		for(long number : stamp)
+			header.putLong(number);
+		header.putInt(numKeys).putInt(keys != null ? 1 : 0);
+		header.clear();
+		
+		while(header.hasRemaining())
+			channel.write(header, header.position());
+		
+		mapped.force();
+		channel.force(true);
+		
+		Files.move(file.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		
+		file = target;
+		mapped = channel.map(FileChannel.MapMode.PRIVATE, headerSize, size);
+		isPrivate = true;
+		this.keys = keys;
+		this.numKeys = numKeys;
+	}
+	
+	/**
+	 * Creates a copy of this RuleTable in a new temporary file next to the specified table file,
+	 * which copies of the copy map privately, so they share every page of the new file they
+	 * do not write to, without sharing the pages this RuleTable has written to privately.
+	 * A table with too many Cells to map is copied onto the heap.
+	 * 
+	 * @param file the table file the new file is made next to
+	 * @return a copy of this RuleTable
+	 * @throws IOException if there is a problem creating or mapping the file
+	 */
+	public RuleTable copyTo(File file) throws IOException
+	{
+		if(ints != null)
+			return copy();
+		
+		RuleTable copy = map(file, maxByteRadix, size);
+		
+		ByteBuffer outputs = bytes != null ? ByteBuffer.wrap(bytes) : mapped.duplicate();
+		outputs.clear();
+		
+		copy.mapped.put(outputs);
+		copy.mapped.clear();
+		
+		return copy;
+	}
+	
+	/**
+	 * Deletes the temporary file of a table made by map or copyTo, which stays mapped by
+	 * this table and its copies until they are no longer used
+	 */
+	public void delete()
+	{
+		if(!isPrivate && mapped != null)
+			file.delete();
+	}
+	
+	/**
+	 * Deletes the temporary file of a table made by map that is not going to be saved
+	 */
+	public void discard()
+	{
+		if(!isPrivate && mapped != null)
+		{
+			delete();
+			
+			try
+			{
+				channel.close();
+			}
+			catch(IOException ex)
+			{
+				//the file is already deleted, it is only held until it is unmapped
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of pages of a private table that have been written to, each of
+	 * which takes memory of its own rather than being shared with the file
+	 * 
+	 * @return the number of written pages
+	 */
+	public int getNumWrittenPages()
+	{
+		return writtenPages == null ? 0 : writtenPages.cardinality();
+	}
+	
+	/**
+	 * Gets the keys stored in the table file this table was opened from
+	 * 
+	 * @return the pattern numbers in the order their rules were read, or null if key i is pattern number i
+	 */
+	public int[] getKeys()
+	{
+		return keys;
+	}
+	
+	/**
+	 * Gets the number of keys stored in the table file this table was opened from
+	 * 
+	 * @return the number of keys
+	 */
+	public int getNumKeys()
+	{
+		return numKeys;
+	}
+	
+	/**
+	 * Gets the output of a pattern
+	 * 
+	 * @param index the pattern number
+	 * @return the ordinal of the output of the pattern, or -1 if the pattern has no rule
+	 */
+	public int get(int index)
+	{
+		if(bytes != null)
+			return (bytes[index] & 0xFF) - 1;
+		
+		if(mapped != null)
+			return (mapped.get(index) & 0xFF) - 1;
+		
+		return ints[index];
+	}
+	
+	/**
+	 * Sets the output of a pattern
+	 * 
+	 * @param index the pattern number
+	 * @param output the ordinal of the output of the pattern, or -1 for no rule
+	 */
+	public void set(int index, int output)
+	{
+		if(bytes != null)
+			bytes[index] = (byte) (output + 1);
+		else if(mapped != null)
+		{
+			byte value = (byte) (output + 1);
+			
+			//a page of a private table is copied the first time it is written to
+			if(mapped.get(index) != value)
+			{
+				mapped.put(index, value);
+				
+				if(isPrivate)
+				{
+					if(writtenPages == null)
+						writtenPages = new BitSet();
+					writtenPages.set(index / pageSize);
+				}
+			}
+		}
+		else
+			ints[index] = output;
+	}
+	
+	/**
+	 * Creates a copy of this RuleTable, which maps the file of this RuleTable
+	 * privately if it is mapped, so the file is never written by the copy. The
+	 * operating system may show outputs set in the file after the copy was made
+	 * on the pages the copy has not written to, so a mapped table is copied once
+	 * its rules are set. A copy of a copy holds every output of the copy.
+	 * 
+	 * @return a copy of this RuleTable
+	 * @throws UncheckedIOException if there is a problem mapping the file
+	 */
+	public RuleTable copy()
+	{
+		RuleTable copy = new RuleTable(size);
+		
+		if(bytes != null)
+			copy.bytes = bytes.clone();
+		else if(ints != null)
+			copy.ints = ints.clone();
+		else
+		{
+			copy.file = file;
+			copy.channel = channel;
+			copy.isPrivate = true;
+			
+			try
+			{
+				copy.mapped = channel.map(FileChannel.MapMode.PRIVATE, headerSize, size);
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException("Error, could not map the rule table \"" + file.getName() + "\"", ex);
+			}
+			
+			//the outputs this table changed are only in its own private pages
+			if(writtenPages != null)
+			{
+				for(int page = writtenPages.nextSetBit(0); page >= 0; page = writtenPages.nextSetBit(page + 1))
+				{
+					int from = page * pageSize;
+					
+					ByteBuffer outputs = mapped.duplicate();
+					outputs.limit(Math.min(size, from + pageSize)).position(from);
+					
+					copy.mapped.position(from);
+					copy.mapped.put(outputs);
+				}
+				
+				copy.mapped.clear();
+				copy.writtenPages = (BitSet) writtenPages.clone();
+			}
+		}
+		
+		return copy;
+	}
+}
@@ -0,0 +1,66 @@
+package cellularautomaton;
+
+/**
+ * class TotalisticEngine to generate CellularAutomata whose rules only depend on the sum of
+ * the ordinals of each pattern, and for outer totalistic rules on the center of the pattern.
+ * <br><br>
+ * The sum is kept in a sliding window the way a Generator keeps its pattern number: moving
+ * one Cell to the right adds the Cell that entered the window and subtracts the Cell that
+ * left it, so a Cell costs two additions and a lookup in a table of a few outputs no matter
+ * how large the patterns are. A totalistic Dictionary has (radix - 1) * patternSize + 1
+ * patterns, so rules with far larger patterns than a Generator can hold the table of fit.
+ */
+class TotalisticEngine extends Generator
+{
+	private boolean isOuter;
+	
+	/**
+	 * the number of sums of the Cells of a pattern other than its center
+	 */
+	private int numOuterSums;
+	
+	/**
+	 * Creates a TotalisticEngine for Rows with the specified number of columns
+	 * 
+	 * @param dictionary the rules to generate with, which must not be in RuleMode.PATTERN
+	 * @param numColumns the number of Cells in each Row
+	 */
+	public TotalisticEngine(Dictionary dictionary, int numColumns)
+	{
+		super(dictionary, numColumns);
+		
+		if(dictionary.getRuleMode() == RuleMode.PATTERN)
+			throw new IllegalArgumentException("Error, a TotalisticEngine can not generate with the pattern rules of " + dictionary);
+		
+		isOuter = dictionary.getRuleMode() == RuleMode.OUTER_TOTALISTIC;
+		numOuterSums = (dictionary.getRadix() - 1) * (patternSize - 1) + 1;
+	}
+	
+	protected void step(int[] parent, int[] child, int from, int to)
+	{
+		//the sum of the first patternSize - 1 Cells of the window, the
+		//window for column col starts at buffer index col because of the padding
+		int sum = 0;
+		for(int i = 0; i < patternSize - 1; i++)
+			sum += parent[from + i];
+		
+		int[] outputs = this.outputs;
+		
+		int last = patternSize - 1;
+		for(int col = from; col < to; col++)
+		{
+			sum += parent[col + last];
+			
+			int index = sum;
+			if(isOuter)
+			{
+				int center = parent[col + leftPadding];
+				index = center * numOuterSums + sum - center;
+			}
+			
+			child[leftPadding + col] = outputs != null ? outputs[index] : getOutput(index, NULL);
+			
+			sum -= parent[col];
+		}
+	}
+}
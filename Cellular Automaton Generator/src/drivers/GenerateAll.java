@@ -1,11 +1,11 @@
 package drivers;
 
 import java.io.File;
+import java.math.BigInteger;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 
 import cellularautomaton.Cell;
-import cellularautomaton.Dictionary;
 
 public class GenerateAll
 {
@@ -27,20 +27,14 @@ public class GenerateAll
 			ArrayList<Cell> setOfCells = settings.alphabet.getSetOfCells();
 			
 			int radix = setOfCells.size();
-			int ruleSize = settings.ruleSize;
+			int numOutputs = settings.dictionary.getNumPatterns();
+			BigInteger numPossibleOutputMaps = BigInteger.valueOf(radix).pow(numOutputs);
 			
-			int numOutputs = (int) Math.pow(radix, ruleSize);
-			long numPossibleOutputMaps = (long) Math.pow(radix, numOutputs);
+			BigInteger end = numPossibleOutputMaps;
+			if(settings.sweepEnd != null)
+				end = end.min(settings.sweepEnd);
 			
-			ArrayList<Integer> radixBasedRuleSet = new ArrayList<Integer>(numOutputs);
-			for(int i = 0; i < numOutputs; i++)
-				radixBasedRuleSet.add(0);
-			
-			for(long i = 0; i < numPossibleOutputMaps; i++)
-			{
-				rebase(i, radix, radixBasedRuleSet);
-				generate(radixBasedRuleSet, i);
-			}
+			new RuleSweep(settings, settings.sweepStart.min(end), end).start();
 			
 			settings.shutdown();
 		}
@@ -50,32 +44,6 @@ public class GenerateAll
 		}
 	}
 	
-	private static void rebase(long n, int radix, ArrayList<Integer> abnormalRadixBasedNumber)
-	{
-		reset(abnormalRadixBasedNumber);
-		
-		int i = 0;
-		while(n > 0)
-		{
-			abnormalRadixBasedNumber.set(i, (int) (n % radix));
-			n /= radix;
-			i++;
-		}
-	}
-	
-	private static void reset(ArrayList<Integer> abnormalRadixBasedNumber)
-	{
-		for(int i = 0; i < abnormalRadixBasedNumber.size(); i++)
-			abnormalRadixBasedNumber.set(i, 0);
-	}
-		
-	private static void generate(ArrayList<Integer> ruleNumber, long base10) throws Exception
-	{
-		Dictionary dictionary = settings.getClonedDictionary();
-		dictionary.remap(ruleNumber);
-		settings.generate(dictionary, base10 + ".png");
-	}
-	
 	/**
 	 * Returns the String path to the directory location of the Jar file this is being run on
 	 * 
@@ -3,8 +3,6 @@ package drivers;
 import java.io.File;
 import java.net.URISyntaxException;
 
-import cellularautomaton.CellularAutomaton;
-
 /**
  * class GenerateImage to act as a driver for the runnable Jar that when executed
  * will get the information from text files and generate the CellularAutomaton
@@ -28,9 +26,7 @@ public class GenerateImage
 			settings.setMappedRules();
 			settings.setStartingRow();
 			
-			CellularAutomaton automaton = settings.getCellularAutomaton();
-			
-			settings.saveImage(automaton.getBufferedImage());
+			settings.generateImage(settings.dictionary, settings.getTimestampFileName());
 			
 			settings.shutdown();
 		}
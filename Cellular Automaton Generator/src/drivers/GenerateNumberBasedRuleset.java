@@ -3,10 +3,9 @@ package drivers;
 import java.io.File;
 import java.math.BigInteger;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
 
-import cellularautomaton.Cell;
 import cellularautomaton.Dictionary;
+import cellularautomaton.RadixConverter;
 
 public class GenerateNumberBasedRuleset
 {
@@ -25,21 +24,15 @@ public class GenerateNumberBasedRuleset
 			settings.setMappedRules();
 			settings.setStartingRow();
 			
-			ArrayList<Cell> setOfCells = settings.alphabet.getSetOfCells();
+			Dictionary dictionary = settings.getClonedDictionary();
 			
-			int radix = setOfCells.size();
-			int ruleSize = settings.ruleSize;
-			
-			int numOutputs = (int) Math.pow(radix, ruleSize);
-			
-			ArrayList<Integer> radixBasedRuleSet = new ArrayList<Integer>(numOutputs);
-			for(int i = 0; i < numOutputs; i++)
-				radixBasedRuleSet.add(0);
+			//the digits of the rule number, the first one for each pattern with a rule is used
+			int[] radixBasedRuleSet = new int[dictionary.getNumPatterns()];
 			
 			BigInteger number = settings.getNumber();
 			
-			rebase(number, new BigInteger(Integer.toString(radix)), radixBasedRuleSet);
-			generate(radixBasedRuleSet, number);
+			new RadixConverter(dictionary.getRadix(), radixBasedRuleSet.length).toDigits(number, radixBasedRuleSet);
+			generate(dictionary, radixBasedRuleSet, number);
 			
 			settings.shutdown();
 		}
@@ -49,28 +42,8 @@ public class GenerateNumberBasedRuleset
 		}
 	}
 	
-	private static void rebase(BigInteger n, BigInteger radix, ArrayList<Integer> abnormalRadixBasedNumber)
-	{
-		reset(abnormalRadixBasedNumber);
-		
-		int i = 0;
-		while(n.compareTo(BigInteger.ZERO) > 0)
-		{
-			abnormalRadixBasedNumber.set(i, n.mod(radix).intValue());
-			n = n.divide(radix);
-			i++;
-		}
-	}
-	
-	private static void reset(ArrayList<Integer> abnormalRadixBasedNumber)
-	{
-		for(int i = 0; i < abnormalRadixBasedNumber.size(); i++)
-			abnormalRadixBasedNumber.set(i, 0);
-	}
-		
-	private static void generate(ArrayList<Integer> ruleNumber, BigInteger base10) throws Exception
+	private static void generate(Dictionary dictionary, int[] ruleNumber, BigInteger base10) throws Exception
 	{
-		Dictionary dictionary = settings.getClonedDictionary();
 		dictionary.remap(ruleNumber);
 		
 		String filename = base10.toString();
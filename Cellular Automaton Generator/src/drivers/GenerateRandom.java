@@ -28,17 +28,13 @@ public class GenerateRandom
 			ArrayList<Cell> setOfCells = settings.alphabet.getSetOfCells();
 			
 			int radix = setOfCells.size();
-			int ruleSize = settings.ruleSize;
+			int numOutputs = settings.dictionary.getNumPatterns();
 			
-			int numOutputs = (int) Math.pow(radix, ruleSize);
-			
-			ArrayList<Integer> radixBasedRuleSet = new ArrayList<Integer>(numOutputs);
-			for(int i = 0; i < numOutputs; i++)
-				radixBasedRuleSet.add(0);
+			int[] radixBasedRuleSet = new int[numOutputs];
 			
 			Random rand = new Random();
-			for(int i = 0; i < radixBasedRuleSet.size(); i++)
-				radixBasedRuleSet.set(i, rand.nextInt(radix));
+			for(int i = 0; i < radixBasedRuleSet.length; i++)
+				radixBasedRuleSet[i] = rand.nextInt(radix);
 			
 			Cell[] row = new Cell[settings.randomizedRowSize];
 			for(int i = 0; i < row.length; i++)
@@ -57,7 +53,7 @@ public class GenerateRandom
 		}
 	}
 		
-	private static void generate(ArrayList<Integer> ruleNumber, String filename) throws Exception
+	private static void generate(int[] ruleNumber, String filename) throws Exception
 	{
 		Dictionary dictionary = settings.getClonedDictionary();
 		dictionary.remap(ruleNumber);
@@ -0,0 +1,544 @@
+package drivers;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+import cellularautomaton.CellularAutomaton;
+import cellularautomaton.Dictionary;
+import cellularautomaton.RuleBatch;
+import cellularautomaton.RuleClass;
+import cellularautomaton.RuleClassifier;
+import cellularautomaton.RuleOdometer;
+import cellularautomaton.RuleSymmetry;
+
+/**
+ * class RuleSweep to generate the image of every rule number in a range of rule numbers.
+ * The range is split into chunks of consecutive rule numbers, and one worker per thread
+ * claims the next unclaimed chunk whenever it finishes its last one, so a worker that is
+ * given slow rules does not hold up the others.
+ * <br><br>
+ * Each worker keeps its own copy of the Dictionary, remapped in place for every rule
+ * number, and its own CellularAutomaton, whose storage is reused for every image. Only
+ * the workers are ever queued, so memory stays the same no matter how large the range is.
+ * Rule numbers can be of any size, each worker counts through its chunk with a RuleOdometer
+ * and only remaps the outputs of the patterns whose digits changed since the last rule number.
+ * <br><br>
+ * Rule numbers are tracked as their offset from the start of the range, so a range can be
+ * a slice of a rule space far too large for a long, as long as the slice itself is not. Images
+ * are named by their rule number, or by the start of the range and their offset once the rule
+ * numbers no longer fit in a long.
+ * <br><br>
+ * Every completed chunk is recorded in a SweepJournal, so when a sweep is restarted with
+ * the same settings it skips the chunks it has already completed, and the images that
+ * were already saved from the chunks it had not completed.
+ * <br><br>
+ * When reduceSymmetry is set, only the canonical rule number of each class of rules with
+ * mirrored or recolored CellularAutomata is generated, and each class is written to the
+ * file "symmetry.txt" as its canonical rule number followed by the transforms that turn it
+ * into its other members, which are described at the top of the file, so their images can be
+ * made from the image of the canonical rule number. A class can be listed twice when a sweep
+ * is resumed.
+ * <br><br>
+ * When skipClasses is set, each rule number is first classified from the first few Rows
+ * of its CellularAutomaton, and rule numbers in a skipped class are never generated in
+ * full or saved. The class of each rule number is written to "classification.txt".
+ * <br><br>
+ * When the settings can generate rules in a RuleBatch, each worker adds the rule numbers of
+ * its chunk to a RuleBatch and generates them in lockstep, a full RuleBatch at a time.
+ */
+public class RuleSweep
+{
+	/**
+	 * the number of chunks each thread is given on average, enough to even out
+	 * the time the rules take without claiming a chunk for every rule number
+	 */
+	private static final int chunksPerThread = 64;
+	
+	/**
+	 * the most rule numbers in a chunk
+	 */
+	private static final long maxChunkSize = 1024;
+	
+	private Settings settings;
+	
+	private BigInteger start;
+	private BigInteger end;
+	
+	/**
+	 * the number of rule numbers in the range, the offset of each rule number
+	 * from the start of the range is below it
+	 */
+	private long numRules;
+	private long chunkSize;
+	
+	/**
+	 * the first rule number when every rule number fits in a long, or -1 when they do not
+	 */
+	private long longStart;
+	
+	/**
+	 * the most digits of the start of the range to name images with, when the rule numbers do not fit in a long
+	 */
+	private static final int maxNameLength = 200;
+	
+	private SweepJournal journal;
+	
+	/**
+	 * the classes of rules with the same CellularAutomaton up to mirroring and recoloring,
+	 * and the file they are written to, or null when every rule number is generated
+	 */
+	private RuleSymmetry symmetry;
+	private BufferedWriter classes;
+	
+	/**
+	 * the file the class of each rule number is written to, or null when no class is skipped
+	 */
+	private BufferedWriter classification;
+	
+	/**
+	 * the number of workers that have not run out of rule numbers
+	 */
+	private AtomicInteger numRunningWorkers;
+	
+	/**
+	 * the offset of the first rule number that has not been claimed by a worker
+	 */
+	private AtomicLong nextOffset;
+	
+	/**
+	 * Creates a RuleSweep over the rule numbers from start to end, a range with more than
+	 * Long.MAX_VALUE rule numbers is cut short, since it could never be swept anyway
+	 * 
+	 * @param settings the settings to generate the images with
+	 * @param start the first rule number to generate, inclusive
+	 * @param end the last rule number to generate, exclusive
+	 * @throws IllegalArgumentException if start is negative or after end
+	 */
+	public RuleSweep(Settings settings, BigInteger start, BigInteger end)
+	{
+		if(start.signum() < 0 || start.compareTo(end) > 0)
+			throw new IllegalArgumentException("Error, the range of rule numbers from " + start + " to " + end + " is empty");
+		
+		this.settings = settings;
+		this.start = start;
+		
+		numRules = end.subtract(start).min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+		this.end = start.add(BigInteger.valueOf(numRules));
+		
+		longStart = this.end.bitLength() < 64 ? start.longValue() : -1;
+		
+		long numChunks = (long) settings.numThreads * chunksPerThread;
+		chunkSize = Math.max(1, Math.min(maxChunkSize, numRules / numChunks));
+		
+		//a chunk fills at least one RuleBatch
+		if(settings.canBatch(settings.dictionary))
+			chunkSize = Math.max(chunkSize, RuleBatch.maxRules);
+		
+		nextOffset = new AtomicLong(0);
+	}
+	
+	/**
+	 * Opens the journal of this sweep, and starts a worker for each thread of the settings,
+	 * the workers keep generating images until every rule number has been claimed
+	 * 
+	 * @throws IOException if there is a problem opening the journal
+	 */
+	public void start() throws IOException
+	{
+		journal = new SweepJournal(settings.getJournalFile(), getDescription());
+		
+		if(settings.reduceSymmetry)
+		{
+			symmetry = new RuleSymmetry(settings.dictionary, settings.startingRow);
+			classes = new BufferedWriter(new FileWriter(settings.getSymmetryFile(), journal.isResumed()));
+			
+			if(!journal.isResumed())
+			{
+				for(int transform = 0; transform < symmetry.size(); transform++)
+					writeClass("# " + transform + " " + symmetry.describe(transform));
+			}
+		}
+		
+		if(!settings.skipClasses.isEmpty())
+			classification = new BufferedWriter(new FileWriter(settings.getClassificationFile(), journal.isResumed()));
+		
+		//the completed ranges are written when the program exits early, including
+		//when an error is written to the error log
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> closeJournalOnExit()));
+		
+		numRunningWorkers = new AtomicInteger(settings.numThreads);
+		
+		//every worker starts from a copy of the rules of the first rule number, so moving to the
+		//rule numbers of its chunks only remaps the outputs of the digits that change
+		Dictionary seed = settings.getSeedDictionary();
+		RuleOdometer odometer = new RuleOdometer(seed.getRadix(), seed.getNumPatterns());
+		
+		odometer.set(start);
+		seed.remap(odometer, odometer.getNumDigits());
+		
+		for(int i = 0; i < settings.numThreads; i++)
+			settings.execute(new Worker(seed, odometer));
+		
+		seed.deleteTable();
+	}
+	
+	/**
+	 * Gets the CRC-32C of the key indices of the rules, the ordinals of the starting Row, and the colors,
+	 * read through a small buffer so the fingerprint of a Dictionary with millions of keys is
+	 * taken without building a String of them
+	 * 
+	 * @return the fingerprint of the rules, the starting Row, and the colors
+	 */
+	private long getFingerprint()
+	{
+		Dictionary dictionary = settings.dictionary;
+		CRC32C checksum = new CRC32C();
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 13);
+		
+		for(int i = 0; i < dictionary.getNumKeys(); i++)
+			update(checksum, buffer, dictionary.getKeyIndex(i));
+		
+		update(checksum, buffer, -1);
+		for(int i = 0; i < settings.startingRow.size(); i++)
+			update(checksum, buffer, settings.startingRow.get(i).getOrdinal());
+		
+		update(checksum, buffer, -1);
+		for(int rgb : settings.alphabet.getPalette())
+			update(checksum, buffer, rgb);
+		
+		buffer.flip();
+		checksum.update(buffer);
+		
+		return checksum.getValue();
+	}
+	
+	private static void update(CRC32C checksum, ByteBuffer buffer, int value)
+	{
+		if(!buffer.hasRemaining())
+		{
+			buffer.flip();
+			checksum.update(buffer);
+			buffer.clear();
+		}
+		
+		buffer.putInt(value);
+	}
+	
+	/**
+	 * Gets a line describing this sweep, a journal is only resumed by a sweep
+	 * over the same range with the same rules, starting Row, and colors
+	 * 
+	 * @return a line describing this sweep
+	 */
+	private String getDescription()
+	{
+		String description = "RuleSweep " + start + " " + end + " " + settings.numRows + " " + Long.toHexString(getFingerprint());
+		
+		if(settings.reduceSymmetry)
+			description += " reduceSymmetry";
+		
+		if(settings.rowStride != 1)
+			description += " rowStride " + settings.rowStride;
+		
+		if(!settings.skipClasses.isEmpty())
+			description += " skipClasses " + settings.skipClasses;
+		
+		return description;
+	}
+	
+	/**
+	 * Closes the file of classes, the file of classifications, and the journal, once every
+	 * worker has run out of rule numbers or the program exits, closing them again does nothing
+	 * 
+	 * @throws IOException if there is a problem writing the last lines of the files
+	 */
+	private void closeJournal() throws IOException
+	{
+		try
+		{
+			if(classes != null)
+			{
+				synchronized(classes)
+				{
+					classes.close();
+				}
+			}
+			
+			if(classification != null)
+			{
+				synchronized(classification)
+				{
+					classification.close();
+				}
+			}
+		}
+		finally
+		{
+			//every line of a completed chunk was flushed before it was recorded, so the
+			//journal is still closed when the last lines of the other files are lost
+			journal.close();
+		}
+	}
+	
+	/**
+	 * Closes the journal as the program exits, when the error log can no longer be
+	 * written without exiting again, so a problem is printed instead
+	 */
+	private void closeJournalOnExit()
+	{
+		try
+		{
+			closeJournal();
+		}
+		catch(IOException ex)
+		{
+			System.err.println("Error, the journal of the sweep could not be closed, "
+					+ "the rule numbers completed last are checked again when the sweep resumes.\n"
+					+ ex.getLocalizedMessage());
+		}
+	}
+	
+	/**
+	 * Writes a line to the file of classes
+	 * 
+	 * @param line the line to write
+	 * @throws IOException if there is a problem writing the line
+	 */
+	private void writeClass(String line) throws IOException
+	{
+		synchronized(classes)
+		{
+			classes.write(line);
+			classes.newLine();
+		}
+	}
+	
+	/**
+	 * Gets the name of a rule number in the range, the rule number itself when it fits in a long,
+	 * or the start of the range, cut short if it is too long to name a file with, and the offset
+	 * 
+	 * @param offset the offset of the rule number from the start of the range
+	 * @return the name of the rule number
+	 */
+	private String getName(long offset)
+	{
+		if(longStart >= 0)
+			return Long.toString(longStart + offset);
+		
+		String name = start.toString();
+		
+		if(name.length() > maxNameLength)
+			name = name.substring(0, maxNameLength);
+		
+		return name + "+" + offset;
+	}
+	
+	/**
+	 * Writes the class of a rule number to the file of classifications
+	 * 
+	 * @param ruleName the name of the rule number
+	 * @param ruleClass the class of the rule number
+	 * @throws IOException if there is a problem writing the class
+	 */
+	private void writeClassification(String ruleName, RuleClass ruleClass) throws IOException
+	{
+		synchronized(classification)
+		{
+			classification.write(ruleName + " " + ruleClass);
+			classification.newLine();
+		}
+	}
+	
+	/**
+	 * Claims the next chunk of rule numbers, skipping the rule numbers completed before the sweep started,
+	 * the journal records the offsets of the rule numbers, which are the rule numbers when the range starts at 0
+	 * 
+	 * @return the offset of the first rule number of the claimed chunk, or numRules if every rule number has been claimed
+	 */
+	private long claim()
+	{
+		while(true)
+		{
+			long next = nextOffset.get();
+			long first = Math.min(journal.skipCompleted(next), numRules);
+			
+			if(first == numRules || nextOffset.compareAndSet(next, getChunkEnd(first)))
+				return first;
+		}
+	}
+	
+	/**
+	 * Gets the end of the chunk starting at the specified offset
+	 * 
+	 * @param first the offset of the first rule number of the chunk
+	 * @return the offset of the last rule number of the chunk, exclusive
+	 */
+	private long getChunkEnd(long first)
+	{
+		//never moves past numRules, so the offsets cannot overflow near Long.MAX_VALUE
+		return first < numRules - chunkSize ? first + chunkSize : numRules;
+	}
+	
+	private class Worker implements Runnable
+	{
+		private Dictionary dictionary;
+		private CellularAutomaton automaton;
+		private RuleClassifier classifier;
+		
+		/**
+		 * the digits of the rule number the Dictionary is remapped to, and its offset
+		 */
+		private RuleOdometer odometer;
+		private long offset;
+		
+		/**
+		 * the rule numbers waiting to be generated together and the names of their images,
+		 * or null when each rule number is generated on its own
+		 */
+		private RuleBatch batch;
+		private String[] fileNames;
+		
+		/**
+		 * Creates a worker with its own copy of the rules of the first rule number
+		 * 
+		 * @param seed the rules of the first rule number
+		 * @param odometer the digits of the first rule number
+		 */
+		public Worker(Dictionary seed, RuleOdometer odometer)
+		{
+			dictionary = seed.clone();
+			this.odometer = new RuleOdometer(odometer);
+			offset = 0;
+			
+			automaton = settings.newCellularAutomaton();
+			
+			if(classification != null)
+				classifier = settings.newRuleClassifier();
+			
+			if(settings.canBatch(dictionary))
+			{
+				batch = new RuleBatch(dictionary, settings.numRows);
+				fileNames = new String[RuleBatch.maxRules];
+			}
+		}
+		
+		/**
+		 * Remaps the Dictionary to the rule number at the specified offset, only remapping the outputs
+		 * of the patterns whose digits changed since the last rule number
+		 * 
+		 * @param next the offset of the rule number
+		 */
+		private void moveTo(long next)
+		{
+			if(next == offset + 1)
+				dictionary.remap(odometer, odometer.increment());
+			else if(next != offset)
+				dictionary.remap(odometer, odometer.set(start.add(BigInteger.valueOf(next))));
+			
+			offset = next;
+		}
+		
+		public void run()
+		{
+			try
+			{
+				for(long first = claim(); first < numRules; first = claim())
+				{
+					long last = getChunkEnd(first);
+					
+					for(long next = journal.skipCompleted(first); next < last; next = journal.skipCompleted(next + 1))
+					{
+						String ruleName = getName(next);
+						String fileName = ruleName + ".png";
+						
+						//remapped before any rule number is skipped, so the next rule number is one step away
+						moveTo(next);
+						
+						if(symmetry != null)
+						{
+							if(!symmetry.isCanonical(odometer))
+								continue;
+							
+							StringBuilder line = new StringBuilder(ruleName);
+							for(int transform : symmetry.getMemberTransforms(odometer))
+								line.append(' ').append(transform);
+							
+							writeClass(line.toString());
+						}
+						
+						//images are only ever saved whole, so an image left by the interrupted sweep is finished
+						if(journal.isResumed() && settings.imageExists(fileName))
+							continue;
+						
+						if(classifier != null)
+						{
+							RuleClass ruleClass = classifier.classify(settings.startingRow, dictionary);
+							writeClassification(ruleName, ruleClass);
+							
+							if(settings.skipClasses.contains(ruleClass))
+								continue;
+						}
+						
+						if(batch == null)
+							settings.generateImage(automaton, dictionary, fileName);
+						else
+						{
+							fileNames[batch.size()] = fileName;
+							batch.add(dictionary);
+							
+							if(batch.size() == RuleBatch.maxRules)
+								generateBatch();
+						}
+					}
+					
+					if(batch != null)
+						generateBatch();
+					
+					//the classes of a chunk are written before the chunk is recorded as completed
+					if(classes != null)
+					{
+						synchronized(classes)
+						{
+							classes.flush();
+						}
+					}
+					
+					if(classification != null)
+					{
+						synchronized(classification)
+						{
+							classification.flush();
+						}
+					}
+					
+					journal.complete(first, last);
+				}
+				
+				if(numRunningWorkers.decrementAndGet() == 0)
+					closeJournal();
+			}
+			catch(Exception ex)
+			{
+				//the program exits, and the journal is closed without the chunk that failed
+				settings.updateErrorLog(ex);
+			}
+		}
+		
+		/**
+		 * Generates and saves the images of the rule numbers in the RuleBatch, and empties it
+		 */
+		private void generateBatch()
+		{
+			if(batch.size() > 0)
+				settings.generateImages(batch, fileNames);
+			
+			batch.clear();
+		}
+	}
+}
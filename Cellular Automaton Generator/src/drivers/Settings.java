@@ -4,14 +4,23 @@ import java.awt.image.BufferedImage;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 
@@ -19,7 +28,12 @@ import cellularautomaton.Alphabet;
 import cellularautomaton.Cell;
 import cellularautomaton.CellularAutomaton;
 import cellularautomaton.Dictionary;
+import cellularautomaton.PNGWriter;
 import cellularautomaton.Row;
+import cellularautomaton.RuleBatch;
+import cellularautomaton.RuleClass;
+import cellularautomaton.RuleClassifier;
+import cellularautomaton.RuleMode;
 
 /**
  * class Settings to be used to obtain user specified data and generate
@@ -32,15 +46,29 @@ public class Settings
 	private static final String settingsFileName = "settings.txt";
 	private static final String alphabetFileName = "alphabet.txt";
 	private static final String rulesFileName = "rules.txt";
+	private static final String compiledRulesFileName = "rules.bin";
+	private static final String ruleTableFileName = "rules.table";
 	private static final String startingRowFileName = "row.txt";
 	private static final String errorlogFileName = "errorlog.txt";
 	private static final String numberFileName = "number.txt";
+	private static final String journalFileName = "progress.txt";
+	private static final String symmetryFileName = "symmetry.txt";
+	private static final String classificationFileName = "classification.txt";
+	private static final String duplicatesFileName = "duplicates.txt";
+	private static final String imagesFileName = "images.txt";
+	
+	/**
+	 * the most fingerprints of saved images kept in memory, the first images saved are the ones
+	 * kept, since the CellularAutomata that are repeated the most are usually among the first
+	 */
+	private static final int maxSavedImages = 1 << 20;
 	
 	private String rootDirectory;
 	private String outputFolder;
 	private File settingsTXT;
 	private File alphabetTXT;
 	private File rulesTXT;
+	private File rulesBIN;
 	private File rowTXT;
 	private File errorlogTXT;
 	private File numberTXT;
@@ -54,7 +82,18 @@ public class Settings
 			"NULLrgbVal = FFFFFF\r\n" +
 			"numRows    = 1000\r\n" +
 			"numThreads = 1\r\n" +
-			"randomizedRowSize = 1000";
+			"randomizedRowSize = 1000\r\n" +
+			"streamRows = false\r\n" +
+			"compressionLevel = 6\r\n" +
+			"reduceSymmetry = false\r\n" +
+			"deduplicateImages = false\r\n" +
+			"rowStride = 1\r\n" +
+			"skipClasses = none\r\n" +
+			"sweepStart = 0\r\n" +
+			"sweepEnd = all\r\n" +
+			"implicitRules = false\r\n" +
+			"mapRuleTable = false\r\n" +
+			"ruleMode = pattern";
 	
 	private static final String defaultNumber = "0";
 	
@@ -65,6 +104,77 @@ public class Settings
 	public int numThreads;
 	public int randomizedRowSize;
 	
+	/**
+	 * when true, images are encoded one Row at a time as the Rows are generated,
+	 * instead of generating the whole CellularAutomaton before encoding it
+	 */
+	public boolean streamRows;
+	
+	/**
+	 * the level images are compressed at, from 0 for the fastest to 9 for the smallest
+	 */
+	public int compressionLevel = 6;
+	
+	/**
+	 * when true, sweeps only generate one rule number of each class of rules whose
+	 * CellularAutomata are mirror images or recolorings of each other
+	 */
+	public boolean reduceSymmetry;
+	
+	/**
+	 * when true, an image with the same Cells as an image already saved is saved as a
+	 * link to the saved image, or listed in "duplicates.txt" if links are not supported.
+	 * The fingerprint of every image saved is written to "images.txt", so a resumed sweep
+	 * still links to the images saved before it stopped.
+	 */
+	public boolean deduplicateImages;
+	
+	/**
+	 * the number of generations between the Rows of an image, so an image can show
+	 * every rowStride-th generation of a CellularAutomaton far past its first numRows
+	 */
+	public long rowStride = 1;
+	
+	/**
+	 * the classes of rules that sweeps do not save images of, found from the first few Rows of the image
+	 * of each rule, rowStride generations apart, the class of every rule is written to "classification.txt" when any are set
+	 */
+	public EnumSet<RuleClass> skipClasses = EnumSet.noneOf(RuleClass.class);
+	
+	/**
+	 * the first rule number a sweep of every rule generates, and the rule number it stops before,
+	 * or null to stop after the last rule number, so a slice of a rule space too large to sweep
+	 * whole can be swept
+	 */
+	public BigInteger sweepStart = BigInteger.ZERO;
+	public BigInteger sweepEnd;
+	
+	/**
+	 * when true, "rules.txt" is neither written nor read, and every pattern is mapped to NULL
+	 * the way the template written to "rules.txt" maps them, so a rule space too large to
+	 * write out can still be swept
+	 */
+	public boolean implicitRules;
+	
+	/**
+	 * when true, the output of every pattern is kept in the memory mapped file "rules.table"
+	 * instead of on the heap, so rules with more patterns than fit in the heap can be generated,
+	 * and every program generating from the same rules shares the pages of the file
+	 */
+	public boolean mapRuleTable;
+	
+	/**
+	 * what the output of a Cell depends on, every pattern of Cells, or only the sum of the
+	 * Cells of a pattern for totalistic rules, whose few rules are written to "rules.txt" by sum
+	 */
+	public RuleMode ruleMode = RuleMode.PATTERN;
+	
+	/**
+	 * the image saved for each fingerprint of the Cells of a CellularAutomaton, read
+	 * from "images.txt" the first time an image is deduplicated, null until then
+	 */
+	private ConcurrentHashMap<String, SavedImage> savedImages;
+	
 	public BigInteger number;
 	
 	public volatile Dictionary dictionary;
@@ -82,8 +192,17 @@ public class Settings
 	
 	public void saveImage(BufferedImage image)
 	{
-		String fileName = (new Timestamp(System.currentTimeMillis())).toString().replace('.', '-').replace(':', '.') + ".png";
-		saveImage(image, fileName);
+		saveImage(image, getTimestampFileName());
+	}
+	
+	/**
+	 * Gets a file name for an image made from the current time
+	 * 
+	 * @return a ".png" file name made from the current time
+	 */
+	public String getTimestampFileName()
+	{
+		return (new Timestamp(System.currentTimeMillis())).toString().replace('.', '-').replace(':', '.') + ".png";
 	}
 	
 	public void randomizeStartingRow()
@@ -105,12 +224,263 @@ public class Settings
 	{
 		try
 		{
-			File f = new File(rootDirectory + outputFolder + fileName);
+			ImageIO.write(image, "png", getOutputFile(fileName));
+		}
+		catch (Exception ex)
+		{
+			updateErrorLog(ex);
+		}
+	}
+	
+	/**
+	 * Saves the image of a generated CellularAutomaton to the output folder, encoded
+	 * straight from its Cells as an indexed color ".png" image
+	 * 
+	 * @param automaton the generated CellularAutomaton to save
+	 * @param fileName the name of the image file to save
+	 */
+	public void saveImage(CellularAutomaton automaton, String fileName)
+	{
+		try
+		{
+			File file = getOutputFile(fileName);
+			File temp = getTempFile(file);
 			
-			if(f.getParentFile() != null && !f.getParentFile().exists())
-				f.getParentFile().mkdirs();
+			String fingerprint = null;
+			if(deduplicateImages)
+			{
+				fingerprint = automaton.getGrid().getFingerprint();
+				
+				SavedImage original = getSavedImages().get(fingerprint);
+				if(original != null && original.isUnchanged())
+				{
+					//an image saved again under its own name is already there
+					if(!original.file.getAbsoluteFile().equals(file.getAbsoluteFile()))
+						saveDuplicate(original.file, file);
+					return;
+				}
+			}
+			
+			PNGWriter.write(automaton.getGrid(), temp, compressionLevel, getEncoderParallelism());
+			replace(temp, file);
+			
+			if(fingerprint != null)
+				addSavedImage(fingerprint, fileName, new SavedImage(file));
+		}
+		catch (Exception ex)
+		{
+			updateErrorLog(ex);
+		}
+	}
+	
+	/**
+	 * Saves an image that has the same Cells as an image that was already saved, as a
+	 * link to the saved image, or as a line "fileName originalFileName" in "duplicates.txt"
+	 * 
+	 * @param original the image that was already saved
+	 * @param file the file of the image to save
+	 * @throws IOException if there is a problem writing to "duplicates.txt"
+	 */
+	private void saveDuplicate(File original, File file) throws IOException
+	{
+		File temp = getTempFile(file);
+		
+		try
+		{
+			Files.createLink(temp.toPath(), original.toPath());
+			replace(temp, file);
+			return;
+		}
+		catch(IOException | UnsupportedOperationException ex)
+		{
+			temp.delete();
+		}
+		
+		synchronized(this)
+		{
+			try(BufferedWriter bw = new BufferedWriter(new FileWriter(new File(rootDirectory + duplicatesFileName), true)))
+			{
+				bw.write(file.getName() + " " + original.getName());
+				bw.newLine();
+			}
+		}
+	}
+	
+	/**
+	 * Gets the image saved for each fingerprint, reading the images saved by earlier runs from
+	 * "images.txt" the first time, where a later line for a fingerprint replaces an earlier one,
+	 * and a line left unfinished by a crash is skipped
+	 * 
+	 * @return the image saved for each fingerprint
+	 * @throws IOException if there is a problem reading "images.txt"
+	 */
+	private synchronized ConcurrentHashMap<String, SavedImage> getSavedImages() throws IOException
+	{
+		if(savedImages != null)
+			return savedImages;
+		
+		ConcurrentHashMap<String, SavedImage> images = new ConcurrentHashMap<String, SavedImage>();
+		File manifest = new File(rootDirectory + imagesFileName);
+		
+		if(manifest.exists())
+		{
+			try(Scanner scan = new Scanner(manifest))
+			{
+				while(scan.hasNextLine() && images.size() < maxSavedImages)
+				{
+					//"fingerprint length lastModified fileName"
+					String[] fields = scan.nextLine().split(" ", 4);
+					
+					if(fields.length == 4 && fields[0].length() == 32 && fields[1].matches("\\d+") && fields[2].matches("\\d+"))
+						images.put(fields[0], new SavedImage(new File(rootDirectory + outputFolder + fields[3]),
+								Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+				}
+			}
+		}
+		
+		savedImages = images;
+		
+		return savedImages;
+	}
+	
+	/**
+	 * Keeps the fingerprint of an image that was saved, and writes it to "images.txt", unless an
+	 * unchanged image with the same fingerprint is already kept or enough images are kept
+	 * 
+	 * @param fingerprint the fingerprint of the Cells of the image
+	 * @param fileName the name of the image file in the output folder
+	 * @param image the image that was saved
+	 * @throws IOException if there is a problem writing to "images.txt"
+	 */
+	private void addSavedImage(String fingerprint, String fileName, SavedImage image) throws IOException
+	{
+		ConcurrentHashMap<String, SavedImage> images = getSavedImages();
+		
+		if(images.size() >= maxSavedImages && !images.containsKey(fingerprint))
+			return;
+		
+		//an image kept from an earlier run that has since been deleted or overwritten is replaced
+		if(images.merge(fingerprint, image, (kept, saved) -> kept.isUnchanged() ? kept : saved) != image)
+			return;
+		
+		synchronized(this)
+		{
+			try(BufferedWriter bw = new BufferedWriter(new FileWriter(new File(rootDirectory + imagesFileName), true)))
+			{
+				bw.write(fingerprint + " " + image.length + " " + image.lastModified + " " + fileName);
+				bw.newLine();
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of blocks of an image to compress at once, sharing the
+	 * available cores between the threads generating images
+	 * 
+	 * @return the number of blocks each image compresses at once
+	 */
+	private int getEncoderParallelism()
+	{
+		return Math.max(1, Runtime.getRuntime().availableProcessors() / numThreads);
+	}
+	
+	/**
+	 * Generates the CellularAutomaton for the provided dictionary of rules, and saves
+	 * its image to the output folder. The image is streamed when streamRows is set,
+	 * or when the CellularAutomaton would be too large to keep in memory.
+	 * 
+	 * @param dictionary the rules to generate the CellularAutomaton with
+	 * @param fileName the name of the image file to save
+	 */
+	public void generateImage(Dictionary dictionary, String fileName)
+	{
+		generateImage(newCellularAutomaton(), dictionary, fileName);
+	}
+	
+	/**
+	 * Creates an ungenerated CellularAutomaton with the number of Rows, row stride, and number of threads of these settings
+	 * 
+	 * @return a new CellularAutomaton
+	 */
+	public CellularAutomaton newCellularAutomaton()
+	{
+		CellularAutomaton automaton = new CellularAutomaton(numRows);
+		automaton.setRowStride(rowStride);
+		automaton.setNumThreads(numThreads);
+		
+		return automaton;
+	}
+	
+	/**
+	 * Creates a RuleClassifier for the Rows of the images of these settings, with their number of Rows and row stride
+	 * 
+	 * @return a new RuleClassifier
+	 */
+	public RuleClassifier newRuleClassifier()
+	{
+		RuleClassifier classifier = new RuleClassifier(numRows);
+		classifier.setRowStride(rowStride);
+		classifier.setNumThreads(numThreads);
+		
+		return classifier;
+	}
+	
+	/**
+	 * Generates the CellularAutomaton for the provided dictionary of rules into the provided
+	 * CellularAutomaton, reusing its storage, and saves its image to the output folder
+	 * 
+	 * @param automaton the CellularAutomaton to generate into, made by newCellularAutomaton
+	 * @param dictionary the rules to generate the CellularAutomaton with
+	 * @param fileName the name of the image file to save
+	 */
+	public void generateImage(CellularAutomaton automaton, Dictionary dictionary, String fileName)
+	{
+		try
+		{
+			if(shouldStream())
+				streamImage(dictionary, fileName);
+			else
+			{
+				automaton.generate(startingRow, dictionary);
+				saveImage(automaton, fileName);
+			}
+		}
+		catch (Exception ex)
+		{
+			updateErrorLog(ex);
+		}
+	}
+	
+	/**
+	 * Returns true if the images of several rules can be generated together in a RuleBatch
+	 * 
+	 * @param dictionary the rules to check
+	 * @return if a RuleBatch supports the rules, every generation is kept, and the
+	 * CellularAutomata of a full RuleBatch fit in the memory of each thread
+	 */
+	public boolean canBatch(Dictionary dictionary)
+	{
+		long numCells = (long) numRows * startingRow.size();
+		
+		//the CellularAutomata of a RuleBatch take a bit per Cell each
+		return RuleBatch.supports(dictionary) && rowStride == 1 && !shouldStream()
+				&& numCells / 8 * RuleBatch.maxRules < Runtime.getRuntime().maxMemory() / numThreads / 2;
+	}
+	
+	/**
+	 * Generates the CellularAutomata of every rule in a RuleBatch, and saves their images to the output folder
+	 * 
+	 * @param batch the rules to generate the CellularAutomata with
+	 * @param fileNames the name of the image file to save for each rule, in the order the rules were added
+	 */
+	public void generateImages(RuleBatch batch, String[] fileNames)
+	{
+		try
+		{
+			batch.generate(startingRow);
 			
-			ImageIO.write(image, "png", f);
+			for(int i = 0; i < batch.size(); i++)
+				saveImage(batch.get(i), fileNames[i]);
 		}
 		catch (Exception ex)
 		{
@@ -118,17 +488,163 @@ public class Settings
 		}
 	}
 	
+	/**
+	 * Returns true if images should be encoded as their Rows are generated
+	 * 
+	 * @return if streamRows is set, or a generated CellularAutomaton and its image
+	 * for every thread would take up more than the memory available
+	 */
+	private boolean shouldStream()
+	{
+		long numCells = (long) numRows * startingRow.size();
+		
+		//a generated CellularAutomaton takes up to a byte per Cell, and its image four more
+		return streamRows || numCells * 5 > Runtime.getRuntime().maxMemory() / numThreads;
+	}
+	
+	/**
+	 * Generates the CellularAutomaton for the provided dictionary of rules, writing each
+	 * Row to the image file as soon as it is generated, without keeping any of them
+	 * 
+	 * @param dictionary the rules to generate the CellularAutomaton with
+	 * @param fileName the name of the image file to save
+	 * @throws Exception if there is a problem writing the image
+	 */
+	public void streamImage(Dictionary dictionary, String fileName) throws Exception
+	{
+		File file = getOutputFile(fileName);
+		File temp = getTempFile(file);
+		
+		try(PNGWriter writer = new PNGWriter(temp, alphabet, startingRow.size(), numRows, compressionLevel, getEncoderParallelism()))
+		{
+			newCellularAutomaton().generate(startingRow, dictionary, writer);
+		}
+		
+		replace(temp, file);
+	}
+	
+	/**
+	 * Gets the file an image is written to before it is finished, so an image
+	 * that is cut short never has the name of a finished image
+	 * 
+	 * @param file the file of the finished image
+	 * @return the file to write the image to until it is finished
+	 */
+	private static File getTempFile(File file)
+	{
+		return new File(file.getPath() + ".part");
+	}
+	
+	/**
+	 * Moves a finished file over the file it replaces in one step, so the replaced file
+	 * is either left as it was or holds the whole finished file. The finished file is forced
+	 * to the disk before it is moved, and the folder after, so once this returns a crash
+	 * can not leave the file empty or with its old contents.
+	 * 
+	 * @param temp the finished file
+	 * @param file the file to replace
+	 * @throws IOException if the finished file could not be forced or moved
+	 */
+	static void replace(File temp, File file) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE))
+		{
+			channel.force(true);
+		}
+		
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		
+		//the rename is only on the disk once the folder is, folders can not be opened on every platform
+		try(FileChannel channel = FileChannel.open(file.getAbsoluteFile().getParentFile().toPath(), StandardOpenOption.READ))
+		{
+			channel.force(true);
+		}
+		catch(IOException ex) {}
+	}
+	
+	/**
+	 * Returns true if an image with the specified name has been saved to the output folder
+	 * 
+	 * @param fileName the name of the image file
+	 * @return if the image file exists
+	 */
+	public boolean imageExists(String fileName)
+	{
+		return new File(rootDirectory + outputFolder + fileName).exists();
+	}
+	
+	/**
+	 * Gets the file "progress.txt", the journal of the rule numbers a sweep has completed
+	 * 
+	 * @return the file "progress.txt" in the root directory
+	 */
+	public File getJournalFile()
+	{
+		return new File(rootDirectory + journalFileName);
+	}
+	
+	/**
+	 * Gets the file "symmetry.txt", the classes of rule numbers a sweep has found
+	 * 
+	 * @return the file "symmetry.txt" in the root directory
+	 */
+	public File getSymmetryFile()
+	{
+		return new File(rootDirectory + symmetryFileName);
+	}
+	
+	/**
+	 * Gets the file "classification.txt", the class of each rule number a sweep has classified
+	 * 
+	 * @return the file "classification.txt" in the root directory
+	 */
+	public File getClassificationFile()
+	{
+		return new File(rootDirectory + classificationFileName);
+	}
+	
+	/**
+	 * Gets the file in the output folder with the specified name, creating its folder if necessary
+	 * 
+	 * @param fileName the name of the file
+	 * @return the file in the output folder with the specified name
+	 */
+	private File getOutputFile(String fileName)
+	{
+		File f = new File(rootDirectory + outputFolder + fileName);
+		
+		if(f.getParentFile() != null && !f.getParentFile().exists())
+			f.getParentFile().mkdirs();
+		
+		return f;
+	}
+	
 	public Dictionary getClonedDictionary()
 	{
 		return dictionary.clone();
 	}
 	
+	/**
+	 * Gets a copy of the dictionary for the workers of a sweep to copy in turn. When the outputs
+	 * are kept in "rules.table", the copy keeps its outputs in a file of its own next to it, so
+	 * once the copy is remapped to the first rule number of the sweep, the copies of the copy
+	 * only take memory for the outputs of the rule numbers they move on to
+	 * 
+	 * @return a copy of the dictionary
+	 * @throws IOException if there is a problem creating the file of the copy
+	 */
+	public Dictionary getSeedDictionary() throws IOException
+	{
+		return dictionary.clone(new File(rootDirectory + ruleTableFileName));
+	}
+	
 	private void initialize()
 	{
 		//initializes files to be used for this class
 		settingsTXT = new File(rootDirectory + settingsFileName);
 		alphabetTXT = new File(rootDirectory + alphabetFileName);
 		rulesTXT = new File(rootDirectory + rulesFileName);
+		rulesBIN = new File(rootDirectory + compiledRulesFileName);
 		rowTXT = new File(rootDirectory + startingRowFileName);
 		errorlogTXT = new File(rootDirectory + errorlogFileName);
 		numberTXT = new File(rootDirectory + numberFileName);
@@ -146,14 +662,22 @@ public class Settings
 			//gets and sets data from text files
 			getSettings();
 			
-			threadManager = Executors.newFixedThreadPool(numThreads);
+			//only a few images can wait for a thread, once they are all taken the caller
+			//generates the image itself, so it can never queue up more than it can generate
+			threadManager = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(numThreads), new ThreadPoolExecutor.CallerRunsPolicy());
 			
 			alphabet = getAlphabet();
 			alphabet.setNULL(nullRGBval);
 			
 			number = getBigInteger();
 			
-			dictionary = new Dictionary(alphabet, ruleSize);
+			if(reduceSymmetry && ruleMode != RuleMode.PATTERN)
+				throw new Exception(""
+						+ "Error, reduceSymmetry only finds the symmetries of rules in the pattern ruleMode,\n"
+						+ "set reduceSymmetry to false in \"settings.txt\" to sweep " + ruleMode + " rules.");
+			
+			dictionary = new Dictionary(alphabet, ruleSize, ruleMode, mapRuleTable ? new File(rootDirectory + ruleTableFileName) : null);
 		}
 		catch(Exception ex)
 		{
@@ -164,17 +688,21 @@ public class Settings
 	/**
 	 * Creates the files "rules.txt", and "startingRow.txt" if they do not already exist, and writes
 	 * all the different permutations of Cells defined in the Alphabet of size equal to ruleSize specified by 
-	 * the dictionary to "rules.txt".
+	 * the dictionary to "rules.txt", unless implicitRules is set.
 	 * 
 	 * @throws Exception if there is a problem creating and writing to "rules.txt", and "startingRow.txt".
 	 */
 	public void generateRules() throws Exception
 	{
-		if(!rulesTXT.exists())
-			rulesTXT.createNewFile();
 		if(!rowTXT.exists())
 			rowTXT.createNewFile();
 		
+		if(implicitRules)
+			return;
+		
+		if(!rulesTXT.exists())
+			rulesTXT.createNewFile();
+		
 		dictionary.permute(rulesTXT);
 	}
 	
@@ -211,7 +739,7 @@ public class Settings
 	 */
 	public CellularAutomaton getCellularAutomaton() throws Exception
 	{		
-		CellularAutomaton cellularAutomaton = new CellularAutomaton(numRows);
+		CellularAutomaton cellularAutomaton = newCellularAutomaton();
 		cellularAutomaton.generate(startingRow, dictionary);
 		
 		return cellularAutomaton;
@@ -225,20 +753,30 @@ public class Settings
 	 */
 	public CellularAutomaton getCellularAutomaton(Dictionary dictionary) throws Exception
 	{		
-		CellularAutomaton cellularAutomaton = new CellularAutomaton(numRows);
+		CellularAutomaton cellularAutomaton = newCellularAutomaton();
 		cellularAutomaton.generate(startingRow, dictionary);
 		
 		return cellularAutomaton;
 	}
 	
 	/**
-	 * Sets the rules of dictionary based on the rules provided in the file "rules.txt"
+	 * Sets the rules of dictionary based on the rules provided in the file "rules.txt",
+	 * which are compiled into the file "rules.bin" to load faster until "rules.txt" changes,
+	 * or maps every pattern to NULL without reading "rules.txt" when implicitRules is set.
+	 * A table mapped from "rules.table" is filled from "rules.txt" directly, since the
+	 * compiled rules are read onto the heap, unless "rules.table" was already built from
+	 * the same "rules.txt", in which case it is mapped as it is
 	 * 
 	 * @throws Exception occurs if the rules listed in "rules.txt" are invalid
 	 */
 	public void setMappedRules() throws Exception
 	{
-		dictionary.setOutputMap(rulesTXT);
+		if(implicitRules)
+			dictionary.setOutputMap(alphabet.get("NULL"));
+		else if(mapRuleTable)
+			dictionary.setOutputMap(rulesTXT);
+		else
+			dictionary.setOutputMap(rulesTXT, rulesBIN);
 	}
 	
 	/**
@@ -285,6 +823,17 @@ public class Settings
 		threadManager.shutdown();
 	}
 	
+	/**
+	 * Shuts down the threads of this, and waits for the images they are generating to be saved
+	 * 
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	public void awaitShutdown() throws InterruptedException
+	{
+		threadManager.shutdown();
+		threadManager.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+	
 	public void setStartingRow()
 	{
 		try
@@ -361,6 +910,17 @@ public class Settings
 			
 			randomizedRowSize = scan.nextInt();
 			
+			//the remaining settings are optional, and keep their default values when left out
+			while(scan.hasNext())
+			{
+				String name = scan.next();
+				
+				//skip past '='
+				scan.next();
+				
+				setOption(name, scan.next());
+			}
+			
 			scan.close();
 		}
 		catch(Exception ex)
@@ -373,6 +933,148 @@ public class Settings
 		}
 	}
 	
+	/**
+	 * Sets one of the optional settings specified in the file "settings.txt"
+	 * 
+	 * @param name the name of the setting
+	 * @param value the value of the setting
+	 * @throws Exception if there is no setting with the specified name, or the value is invalid
+	 */
+	private void setOption(String name, String value) throws Exception
+	{
+		switch(name)
+		{
+			case "streamRows":
+				streamRows = parseBoolean(value);
+				break;
+			case "compressionLevel":
+				compressionLevel = parseInt(value, 0, 9);
+				break;
+			case "reduceSymmetry":
+				reduceSymmetry = parseBoolean(value);
+				break;
+			case "deduplicateImages":
+				deduplicateImages = parseBoolean(value);
+				break;
+			case "rowStride":
+				rowStride = parseLong(value, 1, Long.MAX_VALUE);
+				break;
+			case "skipClasses":
+				skipClasses = parseClasses(value);
+				break;
+			case "sweepStart":
+				sweepStart = parseRuleNumber(value);
+				break;
+			case "sweepEnd":
+				sweepEnd = value.equalsIgnoreCase("all") ? null : parseRuleNumber(value);
+				break;
+			case "implicitRules":
+				implicitRules = parseBoolean(value);
+				break;
+			case "mapRuleTable":
+				mapRuleTable = parseBoolean(value);
+				break;
+			case "ruleMode":
+				ruleMode = parseRuleMode(value);
+				break;
+			default:
+				throw new Exception("Error, \"" + name + "\" is not a setting");
+		}
+	}
+	
+	private static int parseInt(String value, int min, int max) throws Exception
+	{
+		int n = Integer.parseInt(value);
+		
+		if(n < min || n > max)
+			throw new Exception("Error, " + n + " is not between " + min + " and " + max);
+		
+		return n;
+	}
+	
+	private static long parseLong(String value, long min, long max) throws Exception
+	{
+		long n = Long.parseLong(value);
+		
+		if(n < min || n > max)
+			throw new Exception("Error, " + n + " is not between " + min + " and " + max);
+		
+		return n;
+	}
+	
+	/**
+	 * Parses a rule number of any size
+	 * 
+	 * @param value the decimal digits of the rule number
+	 * @return the rule number
+	 * @throws Exception if the rule number is negative
+	 */
+	private static BigInteger parseRuleNumber(String value) throws Exception
+	{
+		BigInteger n = new BigInteger(value);
+		
+		if(n.signum() < 0)
+			throw new Exception("Error, the rule number " + n + " is negative");
+		
+		return n;
+	}
+	
+	/**
+	 * Parses the name of a RuleMode
+	 * 
+	 * @param value the name of the RuleMode
+	 * @return the RuleMode with the name
+	 * @throws Exception if there is no RuleMode with the name
+	 */
+	private static RuleMode parseRuleMode(String value) throws Exception
+	{
+		try
+		{
+			return RuleMode.parse(value);
+		}
+		catch(IllegalArgumentException ex)
+		{
+			throw new Exception("Error, \"" + value + "\" is not one of the rule modes " + EnumSet.allOf(RuleMode.class));
+		}
+	}
+	
+	/**
+	 * Parses a list of classes of rules separated by commas, or "none" for no classes
+	 * 
+	 * @param value the list of classes
+	 * @return the classes in the list
+	 * @throws Exception if a class in the list does not exist
+	 */
+	private static EnumSet<RuleClass> parseClasses(String value) throws Exception
+	{
+		EnumSet<RuleClass> classes = EnumSet.noneOf(RuleClass.class);
+		
+		if(value.equalsIgnoreCase("none"))
+			return classes;
+		
+		for(String name : value.split(","))
+		{
+			try
+			{
+				classes.add(RuleClass.parse(name));
+			}
+			catch(IllegalArgumentException ex)
+			{
+				throw new Exception("Error, \"" + name + "\" is not one of the classes " + EnumSet.allOf(RuleClass.class));
+			}
+		}
+		
+		return classes;
+	}
+	
+	private static boolean parseBoolean(String value) throws Exception
+	{
+		if(!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false"))
+			throw new Exception("Error, \"" + value + "\" is not true or false");
+		
+		return Boolean.parseBoolean(value);
+	}
+	
 	/**
 	 * Gets the Alphabet as defined in the file "alphabet.txt".
 	 * 
@@ -438,7 +1140,51 @@ public class Settings
 	
 	public void generate(Dictionary dictionary, String filename)
 	{
-		threadManager.execute(new GeneratorThread(dictionary, filename));
+		execute(new GeneratorThread(dictionary, filename));
+	}
+	
+	/**
+	 * Runs a task on one of the threads of this, or on the calling thread if every
+	 * thread is busy and enough tasks are already waiting
+	 * 
+	 * @param task the task to run
+	 */
+	public void execute(Runnable task)
+	{
+		threadManager.execute(task);
+	}
+	
+	/**
+	 * An image that was saved, with the length and modification time it was saved with,
+	 * so an image that has since been replaced by another image is not linked to
+	 */
+	private static class SavedImage
+	{
+		private File file;
+		private long length;
+		private long lastModified;
+		
+		public SavedImage(File file)
+		{
+			this(file, file.length(), file.lastModified());
+		}
+		
+		public SavedImage(File file, long length, long lastModified)
+		{
+			this.file = file;
+			this.length = length;
+			this.lastModified = lastModified;
+		}
+		
+		/**
+		 * Returns true if the image is still the image that was saved
+		 * 
+		 * @return if the file exists with the length and modification time it was saved with
+		 */
+		public boolean isUnchanged()
+		{
+			return file.exists() && file.length() == length && file.lastModified() == lastModified;
+		}
 	}
 	
 	private class GeneratorThread implements Runnable
@@ -454,11 +1200,7 @@ public class Settings
 		
 		public void run()
 		{
-			try {
-				CellularAutomaton automaton = new CellularAutomaton(numRows);
-				automaton.generate(startingRow, dictionary);
-				saveImage(automaton.getBufferedImage(), filename);
-			} catch (Exception e) {}
+			generateImage(dictionary, filename);
 		}
 	}
 }
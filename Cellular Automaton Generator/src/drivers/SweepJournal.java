@@ -0,0 +1,242 @@
+package drivers;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.TreeMap;
+
+/**
+ * class SweepJournal to record which rule numbers of a RuleSweep have had their images
+ * generated, so an interrupted sweep can be restarted where it stopped. The journal is a
+ * text file starting with a line that describes the sweep, followed by one line for each
+ * completed range of rule numbers, "first last" with last exclusive.
+ * <br><br>
+ * Completed ranges are written in batches, and every batch is forced to the disk before
+ * it is considered written. Images are forced to the disk before they are given their
+ * names, so after a crash the journal only ever lists ranges whose images are all on the disk. When a journal is opened for the same sweep it describes,
+ * its ranges are merged and written back as a fresh journal.
+ */
+class SweepJournal implements Closeable
+{
+	/**
+	 * the most completed ranges kept in memory before they are written
+	 */
+	private static final int batchSize = 64;
+	
+	/**
+	 * the most time completed ranges are kept in memory before they are written, in milliseconds
+	 */
+	private static final long batchTime = 5000;
+	
+	/**
+	 * the ranges completed before this journal was opened, mapping the first rule
+	 * number of each range to the last, merged so no two ranges touch
+	 */
+	private TreeMap<Long, Long> completed;
+	
+	/**
+	 * the ranges completed since the last batch was written
+	 */
+	private ArrayList<long[]> pending;
+	private long lastWriteTime;
+	
+	private FileOutputStream stream;
+	private BufferedWriter writer;
+	
+	private boolean resumed;
+	
+	/**
+	 * Opens the journal of a sweep, reading the ranges it has already completed if the
+	 * file is the journal of the same sweep, or starting a new journal if it is not
+	 * 
+	 * @param file the file of the journal
+	 * @param description a line describing the sweep, the file is only resumed when it starts with the same line
+	 * @throws IOException if there is a problem reading or writing the journal
+	 */
+	public SweepJournal(File file, String description) throws IOException
+	{
+		completed = new TreeMap<Long, Long>();
+		pending = new ArrayList<long[]>();
+		
+		resumed = file.exists() && read(file, description);
+		
+		//writes the merged ranges to a new file and replaces the old journal with it,
+		//which also drops a line left unfinished by a crash
+		File temp = new File(file.getPath() + ".part");
+		open(temp, false);
+		
+		writer.write(description);
+		writer.newLine();
+		
+		for(Map.Entry<Long, Long> range : completed.entrySet())
+			writeRange(range.getKey(), range.getValue());
+		
+		close();
+		Settings.replace(temp, file);
+		
+		open(file, true);
+		
+		lastWriteTime = System.currentTimeMillis();
+	}
+	
+	private void open(File file, boolean append) throws IOException
+	{
+		stream = new FileOutputStream(file, append);
+		writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.US_ASCII));
+	}
+	
+	/**
+	 * Reads the completed ranges of a journal file
+	 * 
+	 * @param file the file of the journal
+	 * @param description the line describing the sweep
+	 * @return true if the file is the journal of the described sweep
+	 * @throws IOException if there is a problem reading the journal
+	 */
+	private boolean read(File file, String description) throws IOException
+	{
+		try(Scanner scan = new Scanner(file, "US-ASCII"))
+		{
+			if(!scan.hasNextLine() || !scan.nextLine().equals(description))
+				return false;
+			
+			//a line cut short by a crash can only have lost digits from the end of its last
+			//rule number, which leaves a range that was completed, or no range at all
+			while(scan.hasNextLine())
+			{
+				String[] range = scan.nextLine().trim().split(" ");
+				
+				if(range.length == 2)
+				{
+					try
+					{
+						add(Long.parseLong(range[0]), Long.parseLong(range[1]));
+					}
+					catch(NumberFormatException ex) {}
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Adds a completed range to the completed ranges, merging it with the ranges it touches
+	 * 
+	 * @param first the first rule number of the range
+	 * @param last the last rule number of the range, exclusive
+	 */
+	private void add(long first, long last)
+	{
+		if(first >= last)
+			return;
+		
+		Map.Entry<Long, Long> before = completed.floorEntry(first);
+		if(before != null && before.getValue() >= first)
+		{
+			first = before.getKey();
+			last = Math.max(last, before.getValue());
+		}
+		
+		Map.Entry<Long, Long> after = completed.ceilingEntry(first);
+		while(after != null && after.getKey() <= last)
+		{
+			last = Math.max(last, after.getValue());
+			completed.remove(after.getKey());
+			after = completed.ceilingEntry(first);
+		}
+		
+		completed.put(first, last);
+	}
+	
+	/**
+	 * Returns true if this journal was opened on the journal of the same sweep
+	 * 
+	 * @return if this journal resumes a sweep that had already started
+	 */
+	public boolean isResumed()
+	{
+		return resumed;
+	}
+	
+	/**
+	 * Gets the first rule number at or after the specified rule number that was not
+	 * completed before this journal was opened
+	 * 
+	 * @param ruleNumber the rule number to start from
+	 * @return the first rule number not completed before this journal was opened
+	 */
+	public long skipCompleted(long ruleNumber)
+	{
+		Map.Entry<Long, Long> range = completed.floorEntry(ruleNumber);
+		
+		if(range != null && range.getValue() > ruleNumber)
+			return range.getValue();
+		
+		return ruleNumber;
+	}
+	
+	/**
+	 * Records that the images of a range of rule numbers have all been generated,
+	 * writing the completed ranges once there are enough of them or enough time has passed
+	 * 
+	 * @param first the first rule number of the range
+	 * @param last the last rule number of the range, exclusive
+	 * @throws IOException if there is a problem writing the journal
+	 */
+	public synchronized void complete(long first, long last) throws IOException
+	{
+		if(first >= last)
+			return;
+		
+		pending.add(new long[] {first, last});
+		
+		if(pending.size() >= batchSize || System.currentTimeMillis() - lastWriteTime >= batchTime)
+			flush();
+	}
+	
+	/**
+	 * Writes the completed ranges kept in memory, and forces them to the disk
+	 * 
+	 * @throws IOException if there is a problem writing the journal
+	 */
+	public synchronized void flush() throws IOException
+	{
+		if(writer == null)
+			return;
+		
+		for(long[] range : pending)
+			writeRange(range[0], range[1]);
+		
+		pending.clear();
+		
+		writer.flush();
+		stream.getFD().sync();
+		
+		lastWriteTime = System.currentTimeMillis();
+	}
+	
+	private void writeRange(long first, long last) throws IOException
+	{
+		writer.write(first + " " + last);
+		writer.newLine();
+	}
+	
+	public synchronized void close() throws IOException
+	{
+		if(writer == null)
+			return;
+		
+		flush();
+		
+		writer.close();
+		writer = null;
+	}
+}